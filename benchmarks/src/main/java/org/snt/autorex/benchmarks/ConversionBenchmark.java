@@ -0,0 +1,140 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.benchmarks;
+
+import dk.brics.automaton.Automaton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.snt.autorex.ArdenEliminator;
+import org.snt.autorex.Autorex;
+import org.snt.autorex.Converter;
+import org.snt.autorex.DefaultLabelTranslator;
+import org.snt.autorex.KleeneEliminator;
+import org.snt.autorex.LabelTranslator;
+import org.snt.autorex.StateEliminator;
+import org.snt.autorex.autograph.Gnfa;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the conversion of automata into regular expressions.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    // number of gnfas that are eliminated per invocation
+    static final int BATCH = 256;
+
+    @State(Scope.Benchmark)
+    public static class Input {
+
+        @Param({"UNION", "SUFFIX", "RANDOM", "README"})
+        public Family family;
+
+        @Param({"1", "2", "4"})
+        public int scale;
+
+        public Automaton auto;
+        public LabelTranslator ltrans;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            auto = family.create(scale);
+            ltrans = new DefaultLabelTranslator();
+        }
+    }
+
+    /**
+     * the elimination consumes its gnfa, hence every invocation gets fresh
+     * ones. Building them takes a full converter pass, which is excluded
+     * from the measurement; every invocation eliminates BATCH gnfas so that
+     * it lasts long enough for per-invocation setup to be timed reliably.
+     */
+    @State(Scope.Thread)
+    public static class GnfaInput {
+
+        public final Gnfa [] gnfas = new Gnfa[BATCH];
+
+        @Setup(Level.Invocation)
+        public void setup(Input in) {
+            for (int i = 0; i < BATCH; i++) {
+                gnfas[i] = Converter.INSTANCE.getGnfaFromAutomaton(in.auto,
+                        in.ltrans);
+            }
+        }
+    }
+
+    @Benchmark
+    public String autorex(Input in) {
+        return Autorex.getRegexFromAutomaton(in.auto, in.ltrans);
+    }
+
+    @Benchmark
+    public Gnfa converter(Input in) {
+        return Converter.INSTANCE.getGnfaFromAutomaton(in.auto, in.ltrans);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void eliminator(GnfaInput in, Blackhole bh) {
+        for (Gnfa g : in.gnfas) {
+            bh.consume(StateEliminator.INSTANCE.eliminate(g));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void kleene(GnfaInput in, Blackhole bh) {
+        for (Gnfa g : in.gnfas) {
+            bh.consume(KleeneEliminator.INSTANCE.eliminate(g));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void arden(GnfaInput in, Blackhole bh) {
+        for (Gnfa g : in.gnfas) {
+            bh.consume(ArdenEliminator.INSTANCE.eliminate(g));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.benchmarks;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.BasicOperations;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Parameterized automaton families that are used by the benchmarks. Every
+ * family is deterministic for a fixed scale so that results of different
+ * runs are comparable.
+ */
+public enum Family {
+
+    /**
+     * union of random lower-case words
+     */
+    UNION {
+        @Override
+        public Automaton create(int scale) {
+            Random rnd = new Random(SEED);
+            List<Automaton> words = new ArrayList<>();
+            for (int i = 0; i < 50 * scale; i++) {
+                StringBuilder sb = new StringBuilder();
+                int len = 3 + rnd.nextInt(8);
+                for (int k = 0; k < len; k++) {
+                    sb.append((char) ('a' + rnd.nextInt(26)));
+                }
+                words.add(BasicAutomata.makeString(sb.toString()));
+            }
+            Automaton a = BasicOperations.union(words);
+            a.determinize();
+            return a;
+        }
+    },
+    /**
+     * (a|b)*a(a|b){n} whose minimal dfa has 2^(n+1) states
+     */
+    SUFFIX {
+        @Override
+        public Automaton create(int scale) {
+            return new RegExp("(a|b)*a(a|b){" + scale + "}").toAutomaton();
+        }
+    },
+    /**
+     * random dfa with 8 * scale states over the alphabet [a-d]
+     */
+    RANDOM {
+        @Override
+        public Automaton create(int scale) {
+            Random rnd = new Random(SEED);
+            int n = 8 * scale;
+            State [] states = new State[n];
+            for (int i = 0; i < n; i++) {
+                states[i] = new State();
+                states[i].setAccept(rnd.nextInt(4) == 0);
+            }
+            states[n - 1].setAccept(true);
+            for (int i = 0; i < n; i++) {
+                // a chain over 'a' keeps all states reachable
+                if (i + 1 < n)
+                    states[i].addTransition(new Transition('a', states[i + 1]));
+                for (char c = 'b'; c <= 'd'; c++) {
+                    if (rnd.nextBoolean())
+                        states[i].addTransition(new Transition(c,
+                                states[rnd.nextInt(n)]));
+                }
+            }
+            Automaton a = new Automaton();
+            a.setInitialState(states[0]);
+            a.setDeterministic(true);
+            a.restoreInvariant();
+            return a;
+        }
+    },
+    /**
+     * the example from the README; the scale is ignored
+     */
+    README {
+        @Override
+        public Automaton create(int scale) {
+            Automaton a = new RegExp("(abc)+[0-9]{1,3}[dg]*").toAutomaton();
+            Automaton b = new RegExp("12345678").toAutomaton();
+            Automaton c = new RegExp(".{0,5}").toAutomaton();
+            return a.union(b).intersection(c);
+        }
+    };
+
+    private static final long SEED = 42L;
+
+    /**
+     * @param scale size parameter of the family
+     * @return a fresh automaton
+     */
+    public abstract Automaton create(int scale);
+}
@@ -0,0 +1,94 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.benchmarks;
+
+import dk.brics.automaton.Automaton;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snt.autorex.Autorex;
+import org.snt.autorex.DefaultLabelTranslator;
+import org.snt.autorex.LabelTranslator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the automaton transformations. The transformations do
+ * not modify their input automaton.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransformationBenchmark {
+
+    @Param({"UNION", "SUFFIX", "RANDOM", "README"})
+    public Family family;
+
+    @Param({"1", "2", "4"})
+    public int scale;
+
+    private Automaton auto;
+    private LabelTranslator ltrans;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        auto = family.create(scale);
+        ltrans = new DefaultLabelTranslator();
+    }
+
+    @Benchmark
+    public Automaton camelCase() {
+        return Autorex.getCamelCaseAutomaton(auto, ltrans);
+    }
+
+    @Benchmark
+    public Automaton len() {
+        return Autorex.getLenAutomaton(auto, ltrans);
+    }
+
+    @Benchmark
+    public Automaton substring() {
+        return Autorex.getSubstringAutomaton(auto, ltrans);
+    }
+
+    @Benchmark
+    public Automaton suffix() {
+        return Autorex.getSuffixAutomaton(auto, ltrans);
+    }
+}
@@ -0,0 +1,389 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntList;
+import org.snt.autorex.utils.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion based on the algebraic method of Brzozowski, Derivatives of
+ * Regular Expressions, JACM 1964. Every state i yields an equation
+ * X_i = a_i1 X_1 | ... | a_in X_n | c_i where c_i is the empty word if i
+ * is accepting. The variables are solved one after the other by Arden's
+ * lemma, X = A X | B has the solution A* B, and substituted into the
+ * equations that refer to them. The regular expression is the solution
+ * for the initial state.
+ *
+ * Acceptance is kept in the constant terms, so that the equations can be
+ * built from the automaton directly without the start and accept states
+ * of a {@link Gnfa}. Variables that only refer to solved variables are
+ * solved without creating new terms; with the default heuristic acyclic
+ * automata are therefore solved in time linear in their number of
+ * transitions.
+ */
+public enum ArdenEliminator {
+
+    INSTANCE;
+
+    final static Logger LOGGER = LoggerFactory.getLogger(ArdenEliminator.class);
+
+    /**
+     * solve the equation system of a gnfa
+     * @param a gnfa
+     * @return the corresponding string for a regular expression.
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a) {
+        return eliminate(a, new ConversionOptions());
+    }
+
+    /**
+     * solve the equation system of a gnfa
+     * @param a gnfa
+     * @param opts conversion options; the elimination heuristic determines
+     *             the order in which the equations are solved
+     * @return the corresponding string for a regular expression.
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a, ConversionOptions opts) {
+        return eliminateToExpr(a, opts, new ConversionBudget(opts)).toString();
+    }
+
+    Expr eliminateToExpr(Gnfa a, ConversionOptions opts, ConversionBudget
+            budget) {
+        Equations eq = new Equations(a.getExprFactory());
+        int accept = a.getEnd().getId();
+        for (State s : a.vertexSet()) {
+            if (s.getKind() != State.Kind.ACCEPT) {
+                eq.addVariable(s.getId());
+            }
+        }
+        for (Transition t : a.edgeSet()) {
+            int src = t.getSource().getId();
+            int dst = t.getTarget().getId();
+            if (dst == accept) {
+                eq.addConstant(src, t.getLabel());
+            } else {
+                eq.addTerm(src, dst, t.getLabel());
+            }
+        }
+        return eq.solve(a.getStart().getId(), opts.getOrder(), budget);
+    }
+
+    /**
+     * convert an automaton without building a gnfa first
+     * @param auto dk.brics automaton
+     * @param ltrans label translator
+     * @param opts conversion options
+     * @param budget resource limits
+     * @param exprs expression factory
+     * @return the expression that denotes the language of auto
+     */
+    Expr convert(Automaton auto, LabelTranslator ltrans, ConversionOptions
+            opts, ConversionBudget budget, ExprFactory exprs) {
+        String singleton = auto.getSingleton();
+        if (singleton != null) {
+            return Converter.getSingletonLabel(singleton, ltrans, exprs);
+        }
+
+        EliminationListener l = budget.getListener();
+        long t = l == null ? 0L : System.nanoTime();
+
+        Equations eq = new Equations(exprs);
+        Converter.INSTANCE.walk(auto, ltrans, budget, exprs, new Converter
+                .Sink() {
+            @Override
+            public void state(int id) {
+                eq.addVariable(id);
+            }
+
+            @Override
+            public void edge(int src, int dst, Expr lbl) {
+                eq.addTerm(src, dst, lbl);
+            }
+
+            @Override
+            public void accept(int id) {
+                eq.addConstant(id, exprs.epsilon());
+            }
+        });
+
+        if (l != null) {
+            l.onPhase(EliminationListener.Phase.CONVERT, System.nanoTime() - t);
+        }
+        return eq.solve(0, opts.getOrder(), budget);
+    }
+
+    /**
+     * a system of right-linear equations over the variables 0..n-1
+     */
+    private static final class Equations {
+
+        private final ExprFactory exprs;
+        // coef[i].get(j) is the coefficient of X_j in the equation of X_i
+        private final List<IntObjectMap<Expr>> coef = new ArrayList<>();
+        // the same coefficients indexed by the referenced variable
+        private final List<IntObjectMap<Expr>> rev = new ArrayList<>();
+        private final List<Expr> cst = new ArrayList<>();
+        private int live = 0;
+        private int terms = 0;
+
+        private final IntList in = new IntList();
+        private final IntList out = new IntList();
+        private final IntList keys = new IntList();
+        private final RipInfo info = new RipInfo();
+
+        Equations(ExprFactory exprs) {
+            this.exprs = exprs;
+        }
+
+        void addVariable(int i) {
+            while (coef.size() <= i) {
+                coef.add(null);
+                rev.add(null);
+                cst.add(null);
+            }
+            coef.set(i, new IntObjectMap<>());
+            rev.set(i, new IntObjectMap<>());
+            live++;
+        }
+
+        void addTerm(int i, int j, Expr lbl) {
+            Expr old = coef.get(i).get(j);
+            if (old == null) {
+                terms++;
+            } else {
+                lbl = exprs.union(old, lbl);
+            }
+            coef.get(i).put(j, lbl);
+            rev.get(j).put(i, lbl);
+        }
+
+        void addConstant(int i, Expr c) {
+            Expr old = cst.get(i);
+            if (old == null) {
+                terms++;
+                cst.set(i, c);
+            } else {
+                cst.set(i, exprs.union(old, c));
+            }
+        }
+
+        private boolean isVariable(int i) {
+            return i < coef.size() && coef.get(i) != null;
+        }
+
+        /**
+         * solve the system for X_root
+         */
+        Expr solve(int root, EliminationHeuristic h, ConversionBudget
+                budget) {
+            EliminationListener l = budget.getListener();
+            long t = 0L;
+            if (l != null) {
+                l.onStart(live, terms);
+                t = System.nanoTime();
+            }
+
+            IntRipQueue queue = new IntRipQueue(coef.size());
+            for (int i = 0; i < coef.size(); i++) {
+                if (i != root && isVariable(i)) {
+                    queue.update(i, getCost(i, h));
+                }
+            }
+
+            int k;
+            while ((k = queue.poll()) != -1) {
+                substitute(k, budget, l);
+                for (int x = 0; x < in.size(); x++) {
+                    int i = in.get(x);
+                    if (i != root && isVariable(i)) {
+                        queue.update(i, getCost(i, h));
+                    }
+                }
+                for (int x = 0; x < out.size(); x++) {
+                    int j = out.get(x);
+                    if (j != root && isVariable(j)) {
+                        queue.update(j, getCost(j, h));
+                    }
+                }
+            }
+
+            IntObjectMap<Expr> rc = coef.get(root);
+            assert rc.size() <= 1 && (rc.isEmpty() || rc.containsKey(root));
+            Expr ret = cst.get(root);
+            if (ret == null) {
+                throw new IllegalArgumentException("the automaton accepts " +
+                        "the empty language");
+            }
+            Expr loop = rc.get(root);
+            if (loop != null) {
+                ret = exprs.concat(exprs.star(loop), ret);
+            }
+            if (l != null) {
+                l.onPhase(EliminationListener.Phase.RIP, System.nanoTime() - t);
+                l.onResult(ret.length());
+            }
+            return ret;
+        }
+
+        /**
+         * solve the equation of X_k by Arden's lemma and substitute the
+         * solution into all equations that refer to X_k; the variables
+         * whose equations have changed are left in in and out
+         */
+        private void substitute(int k, ConversionBudget budget,
+                                EliminationListener l) {
+            IntObjectMap<Expr> ck = coef.get(k);
+            IntObjectMap<Expr> rk = rev.get(k);
+            Expr c = cst.get(k);
+
+            in.clear();
+            out.clear();
+            rk.keys(in);
+            ck.keys(out);
+
+            int removed = ck.size() + (c != null ? 1 : 0);
+
+            // X_k = A X_k | B  ==>  X_k = A* B
+            Expr loop = ck.remove(k);
+            if (loop != null) {
+                rk.remove(k);
+                Expr s = exprs.star(loop);
+                for (int x = 0; x < out.size(); x++) {
+                    int j = out.get(x);
+                    if (j != k) {
+                        ck.put(j, exprs.concat(s, ck.get(j)));
+                    }
+                }
+                if (c != null) {
+                    c = exprs.concat(s, c);
+                }
+            }
+
+            int created = 0;
+            long maxLen = 0L;
+            for (int x = 0; x < in.size(); x++) {
+                int i = in.get(x);
+                if (i == k)
+                    continue;
+                IntObjectMap<Expr> ci = coef.get(i);
+                Expr a = ci.remove(k);
+                removed++;
+                for (int y = 0; y < out.size(); y++) {
+                    int j = out.get(y);
+                    if (j == k)
+                        continue;
+                    Expr lbl = exprs.concat(a, ck.get(j));
+                    Expr old = ci.get(j);
+                    if (old == null) {
+                        terms++;
+                    } else {
+                        lbl = exprs.union(lbl, old);
+                    }
+                    ci.put(j, lbl);
+                    rev.get(j).put(i, lbl);
+                    budget.checkLabel(lbl.length());
+                    maxLen = Math.max(maxLen, lbl.length());
+                    created++;
+                }
+                if (c != null) {
+                    Expr lbl = exprs.concat(a, c);
+                    Expr old = cst.get(i);
+                    if (old == null) {
+                        terms++;
+                    } else {
+                        lbl = exprs.union(lbl, old);
+                    }
+                    cst.set(i, lbl);
+                    budget.checkLabel(lbl.length());
+                    maxLen = Math.max(maxLen, lbl.length());
+                    created++;
+                }
+            }
+
+            for (int y = 0; y < out.size(); y++) {
+                int j = out.get(y);
+                if (j != k) {
+                    rev.get(j).remove(k);
+                }
+            }
+
+            coef.set(k, null);
+            rev.set(k, null);
+            cst.set(k, null);
+            live--;
+            terms -= removed;
+
+            budget.step(live, terms);
+            if (l != null) {
+                l.onRip(created, live, terms, maxLen);
+            }
+        }
+
+        /**
+         * the cost of solving X_k; the constant term counts as a reference
+         * to the accepting state of a gnfa
+         */
+        private long getCost(int k, EliminationHeuristic h) {
+            info.reset(k);
+            IntObjectMap<Expr> ck = coef.get(k);
+            IntObjectMap<Expr> rk = rev.get(k);
+            keys.clear();
+            rk.keys(keys);
+            for (int x = 0; x < keys.size(); x++) {
+                if (keys.get(x) != k)
+                    info.addIncoming(rk.get(keys.get(x)).length());
+            }
+            keys.clear();
+            ck.keys(keys);
+            for (int x = 0; x < keys.size(); x++) {
+                if (keys.get(x) != k)
+                    info.addOutgoing(ck.get(keys.get(x)).length());
+            }
+            Expr c = cst.get(k);
+            if (c != null)
+                info.addOutgoing(c.length());
+            Expr loop = ck.get(k);
+            if (loop != null)
+                info.setLoop(loop.length());
+            return h.cost(info);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntervalSet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of dk.brics automata.
+ *
+ * An encoded automaton consists of a header (magic number, version and
+ * length of the payload) and a payload of unsigned varints. States are
+ * numbered in breadth-first order starting with 0 for the initial state.
+ * The payload holds the number of states, a bitmap of the accepting
+ * states and, for every state, its transitions grouped by destination;
+ * the character ranges of a group are sorted and stored as the gap to the
+ * previous range and the width of the range. Singleton automata are
+ * stored as their string.
+ *
+ * Encoded automata can be concatenated in a single buffer or channel.
+ * They can be decoded either into a dk.brics automaton or directly into a
+ * gnfa without building dk.brics states.
+ */
+public enum AutomatonCodec {
+
+    INSTANCE;
+
+    final static Logger LOGGER = LoggerFactory.getLogger(AutomatonCodec
+            .class);
+
+    private static final int MAGIC = 0x41525841;
+    private static final byte VERSION = 1;
+    // magic, version, payload length
+    private static final int HEADER = 9;
+
+    private static final int DETERMINISTIC = 1;
+    private static final int SINGLETON = 2;
+
+    // limits are checked whenever the number of transitions is a multiple
+    // of CHECK_INTERVAL + 1
+    private static final int CHECK_INTERVAL = 1023;
+
+    /**
+     * a growable byte array
+     */
+    private static final class Output {
+        private byte [] buf = new byte[256];
+        private int len = HEADER;
+
+        private void ensure(int n) {
+            if (len + n > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, len + n));
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[len++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[len++] = (byte) v;
+        }
+
+        void bytes(byte [] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, len, b.length);
+            len += b.length;
+        }
+
+        ByteBuffer finish() {
+            ByteBuffer ret = ByteBuffer.wrap(buf, 0, len);
+            ret.putInt(MAGIC).put(VERSION).putInt(len - HEADER);
+            ret.rewind();
+            return ret;
+        }
+    }
+
+    /**
+     * encode automaton a
+     * @param a dk.brics automaton; it is not modified
+     * @return the encoded automaton
+     */
+    public byte [] encode(Automaton a) {
+        ByteBuffer b = encodeToBuffer(a);
+        return Arrays.copyOf(b.array(), b.limit());
+    }
+
+    /**
+     * write the encoding of automaton a to out
+     * @param a dk.brics automaton; it is not modified
+     * @param out the channel to write to
+     * @throws IOException if out cannot be written
+     */
+    public void write(Automaton a, WritableByteChannel out) throws
+            IOException {
+        ByteBuffer b = encodeToBuffer(a);
+        while (b.hasRemaining()) {
+            out.write(b);
+        }
+    }
+
+    private ByteBuffer encodeToBuffer(Automaton a) {
+        Output out = new Output();
+
+        String singleton = a.getSingleton();
+        if (singleton != null) {
+            out.varint(SINGLETON | DETERMINISTIC);
+            out.varint(singleton.length());
+            for (int i = 0; i < singleton.length(); i++) {
+                out.varint(singleton.charAt(i));
+            }
+            return out.finish();
+        }
+
+        out.varint(a.isDeterministic() ? DETERMINISTIC : 0);
+
+        // breadth-first numbering; getInitialState does not expand
+        // non-singleton automata
+        Map<State, Integer> smap = new IdentityHashMap<>();
+        List<State> states = new ArrayList<>();
+        smap.put(a.getInitialState(), 0);
+        states.add(a.getInitialState());
+        for (int i = 0; i < states.size(); i++) {
+            for (Transition t : states.get(i).getTransitions()) {
+                if (!smap.containsKey(t.getDest())) {
+                    smap.put(t.getDest(), states.size());
+                    states.add(t.getDest());
+                }
+            }
+        }
+
+        int n = states.size();
+        out.varint(n);
+        byte [] accept = new byte[(n + 7) >>> 3];
+        for (int i = 0; i < n; i++) {
+            if (states.get(i).isAccept())
+                accept[i >>> 3] |= 1 << (i & 7);
+        }
+        out.bytes(accept);
+
+        // character ranges of the current state grouped by destination;
+        // the builders are reused
+        int [] slot = new int[n];
+        Arrays.fill(slot, -1);
+        int [] dsts = new int[n];
+        List<IntervalSet.Builder> ranges = new ArrayList<>();
+
+        for (State s : states) {
+            int groups = 0;
+            for (Transition t : s.getTransitions()) {
+                int dst = smap.get(t.getDest());
+                if (slot[dst] < 0) {
+                    slot[dst] = groups;
+                    dsts[groups] = dst;
+                    if (ranges.size() == groups)
+                        ranges.add(new IntervalSet.Builder());
+                    groups++;
+                }
+                ranges.get(slot[dst]).add(t.getMin(), t.getMax());
+            }
+
+            out.varint(groups);
+            for (int g = 0; g < groups; g++) {
+                IntervalSet.Builder b = ranges.get(g);
+                IntervalSet set = b.build();
+                b.clear();
+                slot[dsts[g]] = -1;
+
+                out.varint(dsts[g]);
+                out.varint(set.size());
+                int prev = -1;
+                for (int i = 0; i < set.size(); i++) {
+                    out.varint(set.getMin(i) - prev - 1);
+                    out.varint(set.getMax(i) - set.getMin(i));
+                    prev = set.getMax(i);
+                }
+            }
+        }
+        return out.finish();
+    }
+
+    /**
+     * receives a decoded automaton
+     */
+    private interface Target {
+        void singleton(String s);
+
+        void states(int n, boolean deterministic);
+
+        void accept(int id);
+
+        /**
+         * all ranges from src to dst
+         */
+        void edge(int src, int dst, IntervalSet ranges);
+    }
+
+    /**
+     * decode the automaton at the position of in and advance the position
+     * past it
+     * @param in the buffer to read from
+     * @return dk.brics automaton
+     * @throws IllegalArgumentException if in does not hold a valid encoding
+     */
+    public Automaton decode(ByteBuffer in) {
+        return toAutomaton(slicePayload(in));
+    }
+
+    private Automaton toAutomaton(ByteBuffer payload) {
+        Automaton [] ret = new Automaton[1];
+        decodePayload(payload, new Target() {
+            private State [] states;
+
+            @Override
+            public void singleton(String s) {
+                ret[0] = BasicAutomata.makeString(s);
+            }
+
+            @Override
+            public void states(int n, boolean deterministic) {
+                states = new State[n];
+                for (int i = 0; i < n; i++) {
+                    states[i] = new State();
+                }
+                ret[0] = new Automaton();
+                ret[0].setInitialState(states[0]);
+                ret[0].setDeterministic(deterministic);
+            }
+
+            @Override
+            public void accept(int id) {
+                states[id].setAccept(true);
+            }
+
+            @Override
+            public void edge(int src, int dst, IntervalSet ranges) {
+                for (int i = 0; i < ranges.size(); i++) {
+                    states[src].addTransition(new Transition(ranges.getMin
+                            (i), ranges.getMax(i), states[dst]));
+                }
+            }
+        }, null);
+        return ret[0];
+    }
+
+    /**
+     * decode the automaton at the position of in directly into a gnfa and
+     * advance the position past it
+     * @param in the buffer to read from
+     * @param ltrans label translator
+     * @return generalized non-deterministic finite automaton
+     * @throws IllegalArgumentException if in does not hold a valid encoding
+     */
+    public Gnfa decodeGnfa(ByteBuffer in, LabelTranslator ltrans) {
+        return decodeGnfa(in, ltrans, new ConversionOptions());
+    }
+
+    /**
+     * decode the automaton at the position of in directly into a gnfa and
+     * advance the position past it
+     * @param in the buffer to read from
+     * @param ltrans label translator
+     * @param opts conversion options
+     * @return generalized non-deterministic finite automaton
+     * @throws IllegalArgumentException if in does not hold a valid encoding
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public Gnfa decodeGnfa(ByteBuffer in, LabelTranslator ltrans,
+                           ConversionOptions opts) {
+        return toGnfa(slicePayload(in), ltrans, opts);
+    }
+
+    private Gnfa toGnfa(ByteBuffer payload, LabelTranslator ltrans,
+                        ConversionOptions opts) {
+        ExprFactory exprs = new ExprFactory();
+        Converter.GnfaSink sink = new Converter.GnfaSink(exprs);
+        decodePayload(payload, new Target() {
+            @Override
+            public void singleton(String s) {
+                sink.singleton(Converter.getSingletonLabel(s, ltrans, exprs));
+            }
+
+            @Override
+            public void states(int n, boolean deterministic) {
+                for (int i = 0; i < n; i++) {
+                    sink.state(i);
+                }
+            }
+
+            @Override
+            public void accept(int id) {
+                sink.accept(id);
+            }
+
+            @Override
+            public void edge(int src, int dst, IntervalSet ranges) {
+                sink.edge(src, dst, exprs.atom(ltrans.getCharClassString
+                        (ranges)));
+            }
+        }, new ConversionBudget(opts));
+        return sink.getGnfa();
+    }
+
+    /**
+     * read the next automaton from in; file channels are mapped instead of
+     * being copied
+     * @param in the channel to read from
+     * @return dk.brics automaton
+     * @throws IOException if in cannot be read or ends prematurely
+     * @throws IllegalArgumentException if in does not hold a valid encoding
+     */
+    public Automaton read(ReadableByteChannel in) throws IOException {
+        return toAutomaton(readPayload(in));
+    }
+
+    /**
+     * read the next automaton from in directly into a gnfa; file channels
+     * are mapped instead of being copied
+     * @param in the channel to read from
+     * @param ltrans label translator
+     * @return generalized non-deterministic finite automaton
+     * @throws IOException if in cannot be read or ends prematurely
+     * @throws IllegalArgumentException if in does not hold a valid encoding
+     */
+    public Gnfa readGnfa(ReadableByteChannel in, LabelTranslator ltrans)
+            throws IOException {
+        return toGnfa(readPayload(in), ltrans, new ConversionOptions());
+    }
+
+    /**
+     * @return the payload of the next encoded automaton of in
+     */
+    private static ByteBuffer readPayload(ReadableByteChannel in) throws
+            IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER);
+        readFully(in, h);
+        h.flip();
+        int len = readHeader(h);
+        if (in instanceof FileChannel) {
+            FileChannel fc = (FileChannel) in;
+            long pos = fc.position();
+            if (pos + len > fc.size())
+                throw new EOFException();
+            ByteBuffer ret = fc.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            fc.position(pos + len);
+            return ret;
+        }
+        ByteBuffer ret = ByteBuffer.allocate(len);
+        readFully(in, ret);
+        ret.flip();
+        return ret;
+    }
+
+    private static void readFully(ReadableByteChannel in, ByteBuffer b)
+            throws IOException {
+        while (b.hasRemaining()) {
+            if (in.read(b) < 0)
+                throw new EOFException();
+        }
+    }
+
+    /**
+     * check the header at the position of in
+     * @return the length of the payload
+     */
+    private static int readHeader(ByteBuffer in) {
+        if (in.remaining() < HEADER)
+            throw new IllegalArgumentException("truncated automaton");
+        ByteBuffer h = in.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (h.getInt() != MAGIC)
+            throw new IllegalArgumentException("not an encoded automaton");
+        if (h.get() != VERSION)
+            throw new IllegalArgumentException("unsupported version");
+        int len = h.getInt();
+        if (len < 0)
+            throw new IllegalArgumentException("malformed automaton");
+        in.position(in.position() + HEADER);
+        return len;
+    }
+
+    /**
+     * @return the payload at the position of in; the position of in is
+     * advanced past it
+     */
+    private static ByteBuffer slicePayload(ByteBuffer in) {
+        int start = in.position();
+        int len = readHeader(in);
+        if (in.remaining() < len) {
+            in.position(start);
+            throw new IllegalArgumentException("truncated automaton");
+        }
+        ByteBuffer ret = in.slice();
+        ret.limit(len);
+        in.position(in.position() + len);
+        return ret;
+    }
+
+    private static int varint(ByteBuffer in) {
+        int ret = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            ret |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return ret;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int varint(ByteBuffer in, int max) {
+        int ret = varint(in);
+        if (ret < 0 || ret > max)
+            throw new IllegalArgumentException("value out of range");
+        return ret;
+    }
+
+    /**
+     * decode payload and report its contents to target
+     */
+    private static void decodePayload(ByteBuffer payload, Target target,
+                                      ConversionBudget budget) {
+        try {
+            int flags = varint(payload);
+            if ((flags & SINGLETON) != 0) {
+                int len = varint(payload, payload.remaining());
+                char [] cs = new char[len];
+                for (int i = 0; i < len; i++) {
+                    cs[i] = (char) varint(payload, Character.MAX_VALUE);
+                }
+                target.singleton(new String(cs));
+                return;
+            }
+
+            // every state needs at least one byte for its group count
+            int n = varint(payload, payload.remaining());
+            if (n == 0)
+                throw new IllegalArgumentException("no initial state");
+            target.states(n, (flags & DETERMINISTIC) != 0);
+
+            byte [] accept = new byte[(n + 7) >>> 3];
+            payload.get(accept);
+
+            IntervalSet.Builder b = new IntervalSet.Builder();
+            int edges = 0;
+            for (int src = 0; src < n; src++) {
+                int groups = varint(payload, n);
+                for (int g = 0; g < groups; g++) {
+                    int dst = varint(payload, n - 1);
+                    int k = varint(payload, Character.MAX_VALUE + 1);
+                    if (k == 0)
+                        throw new IllegalArgumentException("empty label");
+                    int prev = -1;
+                    for (int i = 0; i < k; i++) {
+                        int min = prev + 1 + varint(payload, Character
+                                .MAX_VALUE);
+                        int max = min + varint(payload, Character.MAX_VALUE);
+                        if (max > Character.MAX_VALUE)
+                            throw new IllegalArgumentException("character " +
+                                    "out of range");
+                        b.add((char) min, (char) max);
+                        prev = max;
+                    }
+                    target.edge(src, dst, b.build());
+                    b.clear();
+
+                    if (budget != null && (++edges & CHECK_INTERVAL) == 0) {
+                        budget.check(n, edges);
+                    }
+                }
+                if ((accept[src >>> 3] & (1 << (src & 7))) != 0) {
+                    target.accept(src);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated automaton", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sequence of automaton transformations that are applied to a single
+ * working copy of the source automaton.
+ *
+ * In contrast to chaining {@link Autorex#getCamelCaseAutomaton(Automaton)},
+ * {@link Autorex#getSubstringAutomaton(Automaton)} and friends, the source
+ * automaton is cloned only once, no transition indexes are built and the
+ * working copy is determinized at most once at the end of the pipeline,
+ * namely if a camel-case or length transformation has been applied.
+ * Pipelines are not thread-safe and can be terminated only once:
+ *
+ * <pre>
+ * String rexp = AutomatonPipeline.of(a).camelCase().substring().toRegex();
+ * </pre>
+ */
+public final class AutomatonPipeline {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(AutomatonPipeline
+            .class);
+
+    private final LabelTranslator ltrans;
+    private Automaton auto;
+    private boolean determinize = false;
+    private int steps = 0;
+
+    private AutomatonPipeline(Automaton a, LabelTranslator ltrans) {
+        this.auto = a.clone();
+        this.ltrans = ltrans;
+    }
+
+    /**
+     * start a pipeline
+     * @param a the source automaton; it is not modified
+     * @return a pipeline without transformations
+     */
+    public static AutomatonPipeline of(Automaton a) {
+        return of(a, Autorex.DEFAULT_TRANSLATOR);
+    }
+
+    /**
+     * start a pipeline
+     * @param a the source automaton; it is not modified
+     * @param ltrans the label translator for the regex conversion
+     * @return a pipeline without transformations
+     */
+    public static AutomatonPipeline of(Automaton a, LabelTranslator ltrans) {
+        return new AutomatonPipeline(a, ltrans);
+    }
+
+    private Automaton getWorkingCopy() {
+        if (auto == null)
+            throw new IllegalStateException("pipeline has been terminated");
+        return auto;
+    }
+
+    /**
+     * make the automaton case-insensitive
+     * @return this pipeline
+     */
+    public AutomatonPipeline camelCase() {
+        AutomatonTrans.toCamelCase(getWorkingCopy());
+        determinize = true;
+        steps++;
+        return this;
+    }
+
+    /**
+     * make the automaton accept all strings of the lengths of its language
+     * @return this pipeline
+     */
+    public AutomatonPipeline len() {
+        AutomatonTrans.toLen(getWorkingCopy());
+        determinize = true;
+        steps++;
+        return this;
+    }
+
+    /**
+     * make the automaton accept all the substrings of its language
+     * @return this pipeline
+     */
+    public AutomatonPipeline substring() {
+        AutomatonTrans.toSubstring(getWorkingCopy());
+        steps++;
+        return this;
+    }
+
+    /**
+     * make the automaton accept all the suffixes of its language
+     * @return this pipeline
+     */
+    public AutomatonPipeline suffix() {
+        AutomatonTrans.toSuffix(getWorkingCopy());
+        steps++;
+        return this;
+    }
+
+    /**
+     * terminate the pipeline
+     * @return the transformed automaton
+     */
+    public Automaton toAutomaton() {
+        Automaton ret = getWorkingCopy();
+        auto = null;
+        if (determinize) {
+            ret.removeDeadTransitions();
+            ret.determinize();
+        }
+        LOGGER.debug("applied {} transformations", steps);
+        return ret;
+    }
+
+    /**
+     * terminate the pipeline with a conversion into a regular expression
+     * @return the regular expression of the transformed automaton
+     */
+    public String toRegex() {
+        return toRegex(new ConversionOptions());
+    }
+
+    /**
+     * terminate the pipeline with a conversion into a regular expression
+     * @param opts conversion options and resource limits
+     * @return the regular expression of the transformed automaton
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public String toRegex(ConversionOptions opts) {
+        return Autorex.getRegexFromAutomaton(toAutomaton(), ltrans, opts);
+    }
+}
@@ -104,6 +104,7 @@ public class AutomatonTrans {
     HashSet<FullTransition> transitions = new HashSet<>();
 
     private int stateId;
+    private int transitionId;
 
 
     public AutomatonTrans() {
@@ -121,7 +122,7 @@ public class AutomatonTrans {
     }
 
     public AutomatonTrans(Automaton a) {
-        this(a, new DefaultLabelTranslator());
+        this(a, Autorex.DEFAULT_TRANSLATOR);
     }
 
     public AutomatonTrans(String rexp) {
@@ -133,6 +134,7 @@ public class AutomatonTrans {
     }
 
     private void reset() {
+        transitionId = 0;
         incoming.clear();
         outgoing.clear();
         transitions.clear();
@@ -143,7 +145,7 @@ public class AutomatonTrans {
         }
     }
 
-    private void setAccepting() {
+    private static void setAccepting(Automaton auto) {
         for (State s : auto.getStates()) {
             s.setAccept(true);
         }
@@ -154,7 +156,8 @@ public class AutomatonTrans {
         reset();
         for (State s : auto.getStates()) {
             for (Transition t : s.getTransitions()) {
-                FullTransition ft = new FullTransition(s, t, t.getDest(), ltrans);
+                FullTransition ft = new FullTransition(s, t, t.getDest(),
+                        ltrans, transitionId++);
                 addTransition(ft);
             }
         }
@@ -165,8 +168,7 @@ public class AutomatonTrans {
         for(FullTransition t : ft) {
             addTransition(t);
         }
-        Set<State> visited = new HashSet<>();
-        dfsNumering(init, visited);
+        dfsNumering(init);
     }
 
     public void addTransition(FullTransition ft) {
@@ -192,14 +194,15 @@ public class AutomatonTrans {
         outgoing.get(ft.getSourceState()).add(ft);
     }
 
-    private void setEpsilon() {
+    private static void setEpsilon(Automaton auto) {
 
+        State init = auto.getInitialState();
         boolean binit = init.isAccept();
 
         Set<StatePair> spairs = new HashSet<StatePair>();
         for (State s : auto.getStates()) {
-            if (!s.equals(auto.getInitialState())) {
-                spairs.add(new StatePair(auto.getInitialState(), s));
+            if (!s.equals(init)) {
+                spairs.add(new StatePair(init, s));
             }
         }
         auto.addEpsilons(spairs);
@@ -207,21 +210,21 @@ public class AutomatonTrans {
     }
 
 
-    protected void convertToCamelCaseAutomaton() {
-
-        Set<Transition> handled = new HashSet<Transition>();
+    /**
+     * add the case-swapped counterpart of every transition of auto; auto is
+     * modified in place and not determinized
+     * @param auto the automaton to transform
+     */
+    static void toCamelCase(Automaton auto) {
 
+        // dk.brics transitions are hashed by their character range only,
+        // hence they are collected per state and not in one global set
         for (State s : auto.getStates()) {
 
-            Set<Transition> transitions = new HashSet<Transition>();
-
-            transitions.addAll(s.getTransitions());
+            List<Transition> transitions = new ArrayList<>(s.getTransitions());
 
             for (Transition t : transitions) {
 
-                if (handled.contains(t))
-                    continue;
-
                 char min = t.getMin();
                 char max = t.getMax();
 
@@ -239,41 +242,65 @@ public class AutomatonTrans {
 
                 Transition tnew = new Transition(min, max, t.getDest());
                 s.addTransition(tnew);
-                handled.add(tnew);
-                handled.add(t);
             }
         }
-
-        auto.removeDeadTransitions();
-        auto.determinize();
-        this.kind = Kind.CAMEL;
-        this.prepare();
     }
 
-    protected void convertToLenAutomaton() {
-
-        Map<Transition, State> transitions = new HashMap<>();
+    /**
+     * let every transition of auto match any character; auto is modified
+     * in place and not determinized
+     * @param auto the automaton to transform
+     */
+    static void toLen(Automaton auto) {
 
         for (State s : auto.getStates()) {
-            for(Transition t : s.getTransitions()){
-                transitions.put(t, s);
-            }
-        }
 
-        for (Transition t : transitions.keySet()) {
+            List<Transition> transitions = new ArrayList<>(s.getTransitions());
 
-            if(t.getMin() == Character.MIN_VALUE && t.getMax() == Character
-                    .MAX_VALUE)
-                continue;
+            for (Transition t : transitions) {
 
-            Transition tnew = new Transition(Character.MIN_VALUE,
-                    Character.MAX_VALUE, t.getDest());
+                if(t.getMin() == Character.MIN_VALUE && t.getMax() == Character
+                        .MAX_VALUE)
+                    continue;
+
+                Transition tnew = new Transition(Character.MIN_VALUE,
+                        Character.MAX_VALUE, t.getDest());
 
-            State s = transitions.get(t);
-            s.getTransitions().remove(t);
-            s.getTransitions().add(tnew);
+                s.getTransitions().remove(t);
+                s.getTransitions().add(tnew);
+            }
         }
+    }
+
+    /**
+     * make auto accept all the substrings of its language; auto is
+     * modified in place and not determinized
+     * @param auto the automaton to transform
+     */
+    static void toSubstring(Automaton auto) {
+        setAccepting(auto);
+        setEpsilon(auto);
+    }
+
+    /**
+     * make auto accept all the suffixes of its language; auto is modified
+     * in place and not determinized
+     * @param auto the automaton to transform
+     */
+    static void toSuffix(Automaton auto) {
+        setEpsilon(auto);
+    }
 
+    protected void convertToCamelCaseAutomaton() {
+        toCamelCase(auto);
+        auto.removeDeadTransitions();
+        auto.determinize();
+        this.kind = Kind.CAMEL;
+        this.prepare();
+    }
+
+    protected void convertToLenAutomaton() {
+        toLen(auto);
         auto.removeDeadTransitions();
         auto.determinize();
         this.kind = Kind.LEN;
@@ -282,15 +309,14 @@ public class AutomatonTrans {
     }
 
     protected void convertToSubstringAutomaton() {
-        setAccepting();
-        setEpsilon();
+        toSubstring(auto);
         this.kind = Kind.SUBSTRING;
         this.prepare();
         this.finish();
     }
 
     protected void convertToSuffixAutomaton() {
-        setEpsilon();
+        toSuffix(auto);
         this.kind = Kind.SUFFIX;
         this.prepare();
         this.finish();
@@ -299,33 +325,48 @@ public class AutomatonTrans {
     public void finish() {
         stateId = 0;
         statenumber.clear();
-        Set<State> visited = new HashSet<State>();
-        dfsNumering(init, visited);
+        dfsNumering(init);
     }
 
-    private void dfsNumering(State s, Set<State> visited) {
+    /**
+     * number all states reachable from s in depth-first preorder; an
+     * explicit stack is used so that deep automata do not overflow the
+     * thread stack
+     * @param s the state to start from
+     */
+    private void dfsNumering(State s) {
 
-        if(!visited.contains(s))
-            visited.add(s);
-        else
+        if(statenumber.containsKey(s))
             return;
 
-        this.stateId++;
-        this.statenumber.put(s, this.stateId);
+        Deque<Iterator<FullTransition>> stack = new ArrayDeque<>();
+        number(s, stack);
 
-        if(!outgoing.containsKey(s))
-            return;
-
-        for (FullTransition t : outgoing.get(s)) {
-            dfsNumering(t.getTargetState(), visited);
+        while(!stack.isEmpty()) {
+            Iterator<FullTransition> iter = stack.peek();
+            if(!iter.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            State t = iter.next().getTargetState();
+            if(!statenumber.containsKey(t))
+                number(t, stack);
         }
     }
 
+    private void number(State s, Deque<Iterator<FullTransition>> stack) {
+        this.stateId++;
+        this.statenumber.put(s, this.stateId);
+        Set<FullTransition> out = outgoing.get(s);
+        if(out != null)
+            stack.push(out.iterator());
+    }
+
     void appendDot(StringBuilder sbuilder, FullTransition ft) {
         sbuilder.append(" -> ").append(
                 "n" + statenumber.get(ft.getTargetState())).append(" [label=\"");
 
-        sbuilder.append(ft.getTransitionLabel());
+        sbuilder.append(ft.getLabel());
 
         sbuilder.append("\"");
 
@@ -29,12 +29,32 @@ package org.snt.autorex;
 import dk.brics.automaton.Automaton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.cache.ConversionCache;
+import org.snt.autorex.cache.Fingerprint;
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
 
 public class Autorex {
 
     final static Logger LOGGER = LoggerFactory.getLogger(AutomatonTrans.class);
 
+    /**
+     * the label translator that is used if none is given; it is shared by
+     * all conversions
+     */
+    public static final LabelTranslator DEFAULT_TRANSLATOR = new
+            CachingLabelTranslator(new DefaultLabelTranslator());
+
     /**
      * returns the regular expression that represents the semantics
      * of a given automaton a
@@ -44,12 +64,183 @@ public class Autorex {
      */
     public static String getRegexFromAutomaton(Automaton a, LabelTranslator
             ltrans) {
-        Gnfa gnfa = Converter.INSTANCE.getGnfaFromAutomaton(a, ltrans);
-        return StateEliminator.INSTANCE.eliminate(gnfa);
+        return getRegexFromAutomaton(a, ltrans, new ConversionOptions());
+    }
+
+    /**
+     * returns the regular expression that represents the semantics
+     * of a given automaton a; the inner states of strongly connected
+     * components are eliminated in parallel
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param order the heuristic that determines the state elimination order
+     * @param pool the pool on which the components are processed
+     * @return the string that represents the regular language accepted by a
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, EliminationHeuristic order, ForkJoinPool pool) {
+        return getRegexFromAutomaton(a, ltrans, new ConversionOptions()
+                .setOrder(order).setPool(pool));
+    }
+
+    /**
+     * returns the regular expression that represents the semantics
+     * of a given automaton a
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param opts conversion options and resource limits
+     * @return the string that represents the regular language accepted by a
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public static String getRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, ConversionOptions opts) {
+        return getRegexFromAutomaton(a, ltrans, opts, new ExprFactory());
+    }
+
+    static String getRegexFromAutomaton(Automaton a, LabelTranslator ltrans,
+                                        ConversionOptions opts, ExprFactory
+                                                exprs) {
+        ConversionCache cache = opts.getCache();
+        if (cache == null)
+            return convert(a, ltrans, opts, exprs);
+        // waiting for another thread counts against the limits of this call
+        ConversionBudget budget = new ConversionBudget(opts);
+        // the minimal automaton is needed for the conversion anyway and
+        // makes the key independent of the shape of a
+        Automaton b = opts.isMinimize() ? Preprocessor.INSTANCE.minimize(a,
+                opts.getPool(), budget) : a;
+        ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of(b),
+                ltrans, opts.getEngine(), opts.getOrder(), opts
+                .isMinimize(), opts.getPortfolio());
+        return cache.get(k, () -> render(toMinimalExpr(b, ltrans, opts,
+                budget, exprs), budget), () -> budget.check(0, 0));
+    }
+
+    private static String convert(Automaton a, LabelTranslator ltrans,
+                                  ConversionOptions opts, ExprFactory exprs) {
+        return convert(a, ltrans, opts, new ConversionBudget(opts), exprs);
+    }
+
+    private static String convert(Automaton a, LabelTranslator ltrans,
+                                  ConversionOptions opts, ConversionBudget
+                                          budget, ExprFactory exprs) {
+        return render(toExpr(a, ltrans, opts, budget, exprs), budget);
+    }
+
+    private static String render(Expr e, ConversionBudget budget) {
+        EliminationListener l = budget.getListener();
+        if (l == null)
+            return e.toString();
+        long t = System.nanoTime();
+        String rex = e.toString();
+        l.onPhase(EliminationListener.Phase.RENDER, System.nanoTime() - t);
+        return rex;
+    }
+
+    private static Expr toExpr(Automaton a, LabelTranslator ltrans,
+                               ConversionOptions opts, ConversionBudget
+                                       budget, ExprFactory exprs) {
+        Automaton b = opts.isMinimize() ? Preprocessor.INSTANCE.minimize(a,
+                opts.getPool(), budget) : a;
+        return toMinimalExpr(b, ltrans, opts, budget, exprs);
+    }
+
+    // b is already minimal if opts asks for it
+    private static Expr toMinimalExpr(Automaton b, LabelTranslator ltrans,
+                                      ConversionOptions opts,
+                                      ConversionBudget budget, ExprFactory
+                                              exprs) {
+        if (opts.getPortfolio() != null) {
+            return opts.getPortfolio().eliminateToExpr(ConversionEngine
+                    .getGnfa(b, ltrans, budget, exprs), opts, budget);
+        }
+        return opts.getEngine().convert(b, ltrans, opts, budget, exprs);
+    }
+
+    /**
+     * writes the regular expression that represents the semantics of a
+     * given automaton a to out; the expression is rendered piece by piece
+     * so that its full text is never held in memory. If a cache is set in
+     * opts, the cached string is written instead.
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param opts conversion options and resource limits
+     * @param out the writer to which the regexp is written; it is neither
+     *            flushed nor closed
+     * @throws IOException if out cannot be written
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public static void writeRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, ConversionOptions opts, Writer out) throws IOException {
+        if (opts.getCache() != null) {
+            out.write(getRegexFromAutomaton(a, ltrans, opts));
+            return;
+        }
+        ConversionBudget budget = new ConversionBudget(opts);
+        Expr e = toExpr(a, ltrans, opts, budget, new ExprFactory());
+        EliminationListener l = budget.getListener();
+        if (l == null) {
+            e.render(out);
+            return;
+        }
+        long t = System.nanoTime();
+        e.render(out);
+        l.onPhase(EliminationListener.Phase.RENDER, System.nanoTime() - t);
+    }
+
+    /**
+     * writes the UTF-8 encoded regular expression that represents the
+     * semantics of a given automaton a to out
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param opts conversion options and resource limits
+     * @param out the stream to which the regexp is written; it is flushed
+     *            but not closed
+     * @throws IOException if out cannot be written
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public static void writeRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, ConversionOptions opts, OutputStream out) throws
+            IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out,
+                StandardCharsets.UTF_8));
+        writeRegexFromAutomaton(a, ltrans, opts, w);
+        w.flush();
+    }
+
+    /**
+     * writes the UTF-8 encoded regular expression that represents the
+     * semantics of a given automaton a to the current position of channel
+     * @param a the automaton to convert to a regexp
+     * @param ltrans a label translator
+     * @param opts conversion options and resource limits
+     * @param channel the channel to which the regexp is written; it is not
+     *                closed
+     * @throws IOException if channel cannot be written
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public static void writeRegexFromAutomaton(Automaton a, LabelTranslator
+            ltrans, ConversionOptions opts, WritableByteChannel channel)
+            throws IOException {
+        Writer w = new BufferedWriter(Channels.newWriter(channel,
+                StandardCharsets.UTF_8.newEncoder(), -1));
+        writeRegexFromAutomaton(a, ltrans, opts, w);
+        w.flush();
+    }
+
+    public static void writeRegexFromAutomaton(Automaton a, Writer out)
+            throws IOException {
+        writeRegexFromAutomaton(a, DEFAULT_TRANSLATOR, new
+                ConversionOptions(), out);
+    }
+
+    public static String getRegexFromAutomaton(Automaton a,
+                                               ConversionOptions opts) {
+        return getRegexFromAutomaton(a, DEFAULT_TRANSLATOR, opts);
     }
 
     public static String getRegexFromAutomaton(Automaton a) {
-        return getRegexFromAutomaton(a, new DefaultLabelTranslator());
+        return getRegexFromAutomaton(a, DEFAULT_TRANSLATOR);
     }
 
     /**
@@ -60,14 +251,11 @@ public class Autorex {
      */
     public static Automaton getCamelCaseAutomaton(Automaton a,
                                                   LabelTranslator ltrans) {
-        AutomatonTrans ccas = new AutomatonTrans(a, ltrans);
-        assert(ccas != null);
-        ccas.convertToCamelCaseAutomaton();
-        return ccas.auto;
+        return AutomatonPipeline.of(a, ltrans).camelCase().toAutomaton();
     }
 
     public static Automaton getCamelCaseAutomaton(Automaton a) {
-        return getCamelCaseAutomaton(a, new DefaultLabelTranslator());
+        return getCamelCaseAutomaton(a, DEFAULT_TRANSLATOR);
     }
 
     /**
@@ -78,14 +266,11 @@ public class Autorex {
      */
     public static Automaton getLenAutomaton(Automaton a,
                                                   LabelTranslator ltrans) {
-        AutomatonTrans ccas = new AutomatonTrans(a, ltrans);
-        assert(ccas != null);
-        ccas.convertToLenAutomaton();
-        return ccas.auto;
+        return AutomatonPipeline.of(a, ltrans).len().toAutomaton();
     }
 
     public static Automaton getLenAutomaton(Automaton a) {
-        return getLenAutomaton(a, new DefaultLabelTranslator());
+        return getLenAutomaton(a, DEFAULT_TRANSLATOR);
     }
 
 
@@ -97,14 +282,11 @@ public class Autorex {
      */
     public static Automaton getSubstringAutomaton(Automaton a,
                                                   LabelTranslator ltrans) {
-        AutomatonTrans substr = new AutomatonTrans(a, ltrans);
-        assert(substr != null);
-        substr.convertToSubstringAutomaton();
-        return substr.auto;
+        return AutomatonPipeline.of(a, ltrans).substring().toAutomaton();
     }
 
     public static Automaton getSubstringAutomaton(Automaton a) {
-        return getSubstringAutomaton(a, new DefaultLabelTranslator());
+        return getSubstringAutomaton(a, DEFAULT_TRANSLATOR);
     }
 
     /**
@@ -115,10 +297,7 @@ public class Autorex {
      */
     public static Automaton getSuffixAutomaton(Automaton a, LabelTranslator
             ltrans) {
-        AutomatonTrans sfx = new AutomatonTrans(a, ltrans);
-        assert(sfx != null);
-        sfx.convertToSuffixAutomaton();
-        return sfx.auto;
+        return AutomatonPipeline.of(a, ltrans).suffix().toAutomaton();
     }
 
     /**
@@ -127,7 +306,7 @@ public class Autorex {
      * @return an automaton that accepts all the suffixes from a
      */
     public static Automaton getSuffixAutomaton(Automaton a) {
-        return getSuffixAutomaton(a, new DefaultLabelTranslator());
+        return getSuffixAutomaton(a, DEFAULT_TRANSLATOR);
     }
 
 }
@@ -0,0 +1,266 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.expr.ExprFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Converts batches of automata on an executor. Every running conversion
+ * borrows a worker, i.e., a label translator and an expression factory,
+ * from a pool that is shared across conversions and holds at most one
+ * worker per concurrent conversion. At most window conversions are
+ * submitted but not yet consumed at any time, so that large or unbounded
+ * inputs are processed in constant memory. Inputs are pulled lazily from
+ * the source while the results are consumed.
+ */
+public class BatchConverter {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(BatchConverter.class);
+
+    private final Executor executor;
+    private final ConversionOptions opts;
+    private final int window;
+    private final Supplier<? extends LabelTranslator> translators;
+    private final Queue<Worker> idle = new ConcurrentLinkedQueue<>();
+
+    // expressions kept by a worker between conversions
+    private static final int MAX_EXPRS = 1 << 16;
+
+    private static final class Worker {
+        private final LabelTranslator ltrans;
+        private final ExprFactory exprs = new ExprFactory();
+
+        private Worker(LabelTranslator ltrans) {
+            this.ltrans = ltrans;
+        }
+    }
+
+    /**
+     * @param executor executor on which the conversions run
+     */
+    public BatchConverter(Executor executor) {
+        this(executor, new ConversionOptions(), () -> Autorex
+                .DEFAULT_TRANSLATOR,
+                4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param executor executor on which the conversions run
+     * @param opts options applied to every conversion
+     * @param translators creates one label translator per worker
+     * @param window maximum number of conversions that are submitted but
+     *               not yet consumed
+     */
+    public BatchConverter(Executor executor, ConversionOptions opts,
+                          Supplier<? extends LabelTranslator> translators,
+                          int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("window must be positive");
+        this.executor = executor;
+        this.opts = opts;
+        this.window = window;
+        this.translators = translators;
+    }
+
+    private String convert(Automaton a) {
+        Worker w = idle.poll();
+        if (w == null)
+            w = new Worker(translators.get());
+        try {
+            return Autorex.getRegexFromAutomaton(a, w.ltrans, opts, w.exprs);
+        } finally {
+            if (w.exprs.size() > MAX_EXPRS)
+                w.exprs.clear();
+            idle.add(w);
+        }
+    }
+
+    private CompletableFuture<BatchResult> submit(long index, Automaton a) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new BatchResult(index, convert(a), null);
+            } catch (VirtualMachineError e) {
+                throw e;
+            } catch (Throwable e) {
+                LOGGER.debug("conversion {} failed: {}", index, e.toString());
+                return new BatchResult(index, null, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * convert all automata and return the results in input order
+     * @param autos automata to convert
+     * @return regular expressions in input order
+     * @throws RuntimeException the first error that occurred
+     */
+    public List<String> convertAll(Collection<Automaton> autos) {
+        List<String> ret = new ArrayList<>(autos.size());
+        Iterator<BatchResult> iter = ordered(autos.iterator());
+        while (iter.hasNext()) {
+            ret.add(iter.next().getRegex());
+        }
+        return ret;
+    }
+
+    /**
+     * @param autos automata to convert
+     * @return results in input order
+     */
+    public Iterator<BatchResult> ordered(Iterator<Automaton> autos) {
+        return new OrderedIterator(autos);
+    }
+
+    /**
+     * @param autos automata to convert
+     * @return results in the order in which they complete
+     */
+    public Iterator<BatchResult> asCompleted(Iterator<Automaton> autos) {
+        return new CompletionIterator(autos);
+    }
+
+    /**
+     * @param autos automata to convert
+     * @return sequential stream of results in input order
+     */
+    public Stream<BatchResult> ordered(Stream<Automaton> autos) {
+        return toStream(ordered(autos.iterator()), Spliterator.ORDERED);
+    }
+
+    /**
+     * @param autos automata to convert
+     * @return sequential stream of results in the order in which they
+     * complete
+     */
+    public Stream<BatchResult> asCompleted(Stream<Automaton> autos) {
+        return toStream(asCompleted(autos.iterator()), 0);
+    }
+
+    private static Stream<BatchResult> toStream(Iterator<BatchResult> iter,
+                                                int characteristics) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter,
+                characteristics | Spliterator.NONNULL), false);
+    }
+
+    private final class OrderedIterator implements Iterator<BatchResult> {
+
+        private final Iterator<Automaton> src;
+        private final Deque<CompletableFuture<BatchResult>> pending = new
+                ArrayDeque<>();
+        private long index = 0L;
+
+        private OrderedIterator(Iterator<Automaton> src) {
+            this.src = src;
+        }
+
+        private void fill() {
+            while (pending.size() < window && src.hasNext()) {
+                pending.add(submit(index++, src.next()));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public BatchResult next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return pending.poll().join();
+        }
+    }
+
+    private final class CompletionIterator implements Iterator<BatchResult> {
+
+        private final Iterator<Automaton> src;
+        private final BlockingQueue<BatchResult> done = new
+                ArrayBlockingQueue<>(window);
+        private int inflight = 0;
+        private long index = 0L;
+
+        private CompletionIterator(Iterator<Automaton> src) {
+            this.src = src;
+        }
+
+        private void fill() {
+            while (inflight < window && src.hasNext()) {
+                long i = index++;
+                submit(i, src.next()).whenComplete((r, e) -> done.add(r !=
+                        null ? r : new BatchResult(i, null, new
+                        CompletionException(e))));
+                inflight++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return inflight > 0;
+        }
+
+        @Override
+        public BatchResult next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            try {
+                BatchResult r = done.take();
+                inflight--;
+                return r;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while " +
+                        "waiting for a conversion", e);
+            }
+        }
+    }
+}
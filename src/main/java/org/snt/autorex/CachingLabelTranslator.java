@@ -0,0 +1,148 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.snt.autorex.cache.StableId;
+import org.snt.autorex.utils.IntObjectMap;
+import org.snt.autorex.utils.IntervalSet;
+
+/**
+ * A thread-safe label translator that caches the labels of another
+ * translator per character range. Labels of single ASCII characters are
+ * kept in an array, other ranges in a copy-on-write map with primitive
+ * keys, so that lookups neither lock nor allocate. The wrapped translator
+ * must translate a transition based on its character range only.
+ */
+public class CachingLabelTranslator implements LabelTranslator,
+        StableId {
+
+    // the number of cached ranges beyond the ASCII characters is bounded
+    // since every miss copies the map
+    private static final int MAX_RANGES = 4096;
+
+    private static final State DUMMY = new State();
+
+    private final LabelTranslator delegate;
+
+    // racy but benign: strings are immutable and every writer stores an
+    // equal value
+    private final String [] ascii = new String[128];
+
+    private volatile IntObjectMap<String> ranges = new IntObjectMap<>();
+
+    /**
+     * @param delegate the translator whose labels are cached
+     */
+    public CachingLabelTranslator(LabelTranslator delegate) {
+        this.delegate = delegate;
+    }
+
+    public LabelTranslator getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String getTransitionString(Transition t) {
+        return getRangeString(t.getMin(), t.getMax(), t);
+    }
+
+    @Override
+    public String getCharClassString(IntervalSet set) {
+        if (set.size() == 1)
+            return getRangeString(set.getMin(0), set.getMax(0), null);
+        return delegate.getCharClassString(set);
+    }
+
+    @Override
+    public void appendRange(char min, char max, StringBuilder sb) {
+        sb.append(getRangeString(min, max, null));
+    }
+
+    @Override
+    public void appendCharClass(IntervalSet set, StringBuilder sb) {
+        if (set.size() == 1) {
+            appendRange(set.getMin(0), set.getMax(0), sb);
+            return;
+        }
+        delegate.appendCharClass(set, sb);
+    }
+
+    private String getRangeString(char min, char max, Transition t) {
+        if (min == max && min < ascii.length) {
+            String ret = ascii[min];
+            if (ret == null) {
+                ret = translate(min, max, t);
+                ascii[min] = ret;
+            }
+            return ret;
+        }
+
+        int key = (min << 16) | max;
+        String ret = ranges.get(key);
+        if (ret == null) {
+            ret = translate(min, max, t);
+            store(key, ret);
+        }
+        return ret;
+    }
+
+    private String translate(char min, char max, Transition t) {
+        if (t == null)
+            t = new Transition(min, max, DUMMY);
+        return delegate.getTransitionString(t);
+    }
+
+    private synchronized void store(int key, String lbl) {
+        if (ranges.size() >= MAX_RANGES || ranges.containsKey(key))
+            return;
+        IntObjectMap<String> next = new IntObjectMap<>(ranges);
+        next.put(key, lbl);
+        ranges = next;
+    }
+
+    /**
+     * @return the identifier of the wrapped translator or null if it is
+     * not stable
+     */
+    @Override
+    public String stableId() {
+        return StableId.of(delegate);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CachingLabelTranslator && delegate.equals((
+                (CachingLabelTranslator) o).delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * delegate.hashCode() + 1;
+    }
+}
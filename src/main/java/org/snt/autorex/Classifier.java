@@ -26,15 +26,16 @@
 
 package org.snt.autorex;
 
-import org.jgrapht.traverse.DepthFirstIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.autorex.autograph.Gnfa;
 import org.snt.autorex.autograph.State;
 import org.snt.autorex.autograph.Transition;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 
 /**
  * A utility class for classifying automaton edges
@@ -53,58 +54,52 @@ public enum Classifier {
         BLACK
     }
 
-    static class ClassificationIterator extends DepthFirstIterator<State,
-            Transition> {
-
-        private int timer = 0;
-
-        private Map<State, Integer> dmap = new HashMap();
-        private Map<State, Color> cmap = new HashMap();
-
-        public ClassificationIterator(Gnfa g) {
-            super(g, g.getStart());
-        }
-
-        @Override
-        protected void encounterVertex(State vertex, Transition edge) {
-            if(edge != null)
-                edge.setProp(Transition.Property.TREE);
-            dmap.put(vertex, timer++);
-            cmap.put(vertex, Color.GRAY);
-            super.encounterVertex(vertex,edge);
-        }
-
-        @Override
-        protected void encounterVertexAgain(State vertex, Transition edge) {
-            if(cmap.get(vertex) == Color.BLACK) {
-                if(dmap.get(edge.getSource()) < dmap.get(edge.getTarget())) {
-                    edge.setProp(Transition.Property.FWD);
-                } else if (dmap.get(edge.getSource()) > dmap.get(edge
-                        .getTarget())) {
-                    edge.setProp(Transition.Property.CROSS);
-                } else {
-                    edge.setProp(Transition.Property.FWD);
-                }
-            } else if (cmap.get(vertex) == Color.GRAY) {
-                edge.setProp(Transition.Property.BACK);
-            }
-            super.encounterVertexAgain(vertex,edge);
-        }
-
-        protected void finishVertex(State vertex) {
-            cmap.put(vertex, Color.BLACK);
-        }
-    }
-
     /**
-     * Start edge classification
+     * Start edge classification; the depth-first search uses an explicit
+     * stack so that arbitrarily deep automata can be classified
      * @param g the Gnfa to analyze
      */
     public void classify(Gnfa g) {
-        ClassificationIterator iter = new ClassificationIterator(g);
-        while(iter.hasNext())
-            iter.next();
+        int n = g.getStateIdBound();
+        // discovery times and colors indexed by state id
+        int [] disc = new int[n];
+        byte [] color = new byte[n];
+        Arrays.fill(disc, -1);
+
+        Deque<State> states = new ArrayDeque<>();
+        Deque<Iterator<Transition>> edges = new ArrayDeque<>();
+
+        int timer = 0;
+        State start = g.getStart();
+        disc[start.getId()] = timer++;
+        color[start.getId()] = (byte) Color.GRAY.ordinal();
+        states.push(start);
+        edges.push(g.outgoingEdgesOf(start).iterator());
+
+        while (!states.isEmpty()) {
+            Iterator<Transition> iter = edges.peek();
+            if (!iter.hasNext()) {
+                color[states.pop().getId()] = (byte) Color.BLACK.ordinal();
+                edges.pop();
+                continue;
+            }
+            Transition e = iter.next();
+            State v = e.getTarget();
+            int vid = v.getId();
+
+            if (color[vid] == Color.WHITE.ordinal()) {
+                e.setProp(Transition.Property.TREE);
+                disc[vid] = timer++;
+                color[vid] = (byte) Color.GRAY.ordinal();
+                states.push(v);
+                edges.push(g.outgoingEdgesOf(v).iterator());
+            } else if (color[vid] == Color.GRAY.ordinal()) {
+                e.setProp(Transition.Property.BACK);
+            } else if (disc[e.getSource().getId()] > disc[vid]) {
+                e.setProp(Transition.Property.CROSS);
+            } else {
+                e.setProp(Transition.Property.FWD);
+            }
+        }
     }
 }
-
-
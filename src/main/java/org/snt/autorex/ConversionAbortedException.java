@@ -0,0 +1,105 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+/**
+ * Thrown if a conversion exceeds one of the limits set in
+ * {@link ConversionOptions} or if it has been cancelled. The exception
+ * reports how far the conversion has progressed.
+ */
+public class ConversionAbortedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        TIMEOUT,
+        LABEL_LENGTH,
+        EDGE_COUNT,
+        CANCELLED
+    }
+
+    private final Reason reason;
+    private final long ripSteps;
+    private final int states;
+    private final int edges;
+    private final long maxLabelLength;
+    private final long elapsed;
+
+    ConversionAbortedException(Reason reason, long ripSteps, int states,
+                               int edges, long maxLabelLength, long
+                                       elapsed) {
+        super("conversion aborted (" + reason + ") after " + ripSteps +
+                " rip steps and " + elapsed / 1000000L + "ms: " + states +
+                " states, " + edges + " transitions, maximum label length " +
+                maxLabelLength);
+        this.reason = reason;
+        this.ripSteps = ripSteps;
+        this.states = states;
+        this.edges = edges;
+        this.maxLabelLength = maxLabelLength;
+        this.elapsed = elapsed;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return number of states that have been ripped out
+     */
+    public long getRipSteps() {
+        return ripSteps;
+    }
+
+    /**
+     * @return number of states at the time of the abort
+     */
+    public int getStates() {
+        return states;
+    }
+
+    /**
+     * @return number of transitions at the time of the abort
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return length of the longest label that has been created
+     */
+    public long getMaxLabelLength() {
+        return maxLabelLength;
+    }
+
+    /**
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the resources consumed by a single conversion and aborts
+ * it once a limit of the {@link ConversionOptions} is exceeded. A budget
+ * may be shared by the threads that work on the same conversion.
+ */
+class ConversionBudget {
+
+    private final long start;
+    private final long deadline;
+    private final long maxLabelLength;
+    private final int maxEdgeCount;
+    private final CancellationToken token;
+    private final EliminationListener listener;
+
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicLong maxLabel = new AtomicLong();
+
+    ConversionBudget(ConversionOptions opts) {
+        this.start = System.nanoTime();
+        this.deadline = opts.getMaxWallTime() > 0 ? start + opts
+                .getMaxWallTime() : 0L;
+        this.maxLabelLength = opts.getMaxLabelLength();
+        this.maxEdgeCount = opts.getMaxEdgeCount();
+        this.token = opts.getCancellationToken();
+        this.listener = opts.getListener();
+    }
+
+    /**
+     * @return the listener of the conversion or null
+     */
+    EliminationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * record a newly created label; the length limit is enforced by the
+     * next call to {@link #check(int, int)}
+     * @param length label length
+     */
+    void checkLabel(long length) {
+        if (length > maxLabel.get()) {
+            maxLabel.accumulateAndGet(length, Math::max);
+        }
+    }
+
+    /**
+     * record a rip step and check the limits
+     * @param states number of remaining states
+     * @param edges number of transitions
+     */
+    void step(int states, int edges) {
+        steps.incrementAndGet();
+        check(states, edges);
+    }
+
+    /**
+     * check the limits
+     * @param states number of states
+     * @param edges number of transitions
+     */
+    void check(int states, int edges) {
+        if (token != null && token.isCancelled()) {
+            throw abort(ConversionAbortedException.Reason.CANCELLED, states,
+                    edges);
+        }
+        if (maxLabelLength > 0 && maxLabel.get() > maxLabelLength) {
+            throw abort(ConversionAbortedException.Reason.LABEL_LENGTH,
+                    states, edges);
+        }
+        if (maxEdgeCount > 0 && edges > maxEdgeCount) {
+            throw abort(ConversionAbortedException.Reason.EDGE_COUNT, states,
+                    edges);
+        }
+        if (deadline != 0L && System.nanoTime() - deadline > 0) {
+            throw abort(ConversionAbortedException.Reason.TIMEOUT, states,
+                    edges);
+        }
+    }
+
+    private ConversionAbortedException abort(ConversionAbortedException
+                                                      .Reason r, int states,
+                                              int edges) {
+        return new ConversionAbortedException(r, steps.get(), states, edges,
+                maxLabel.get(), System.nanoTime() - start);
+    }
+}
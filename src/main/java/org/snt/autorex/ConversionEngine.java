@@ -0,0 +1,110 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+
+/**
+ * Algorithms that turn a gnfa into a regular expression
+ */
+public enum ConversionEngine {
+
+    /**
+     * rip out one state after the other, see {@link StateEliminator}
+     */
+    STATE_ELIMINATION {
+        @Override
+        Expr eliminate(Gnfa a, ConversionOptions opts, ConversionBudget
+                budget) {
+            return StateEliminator.INSTANCE.eliminateToExpr(a, opts, budget);
+        }
+    },
+
+    /**
+     * McNaughton-Yamada recurrence on a label array, see
+     * {@link KleeneEliminator}; suited for dense graphs of small to medium
+     * size
+     */
+    KLEENE {
+        @Override
+        Expr eliminate(Gnfa a, ConversionOptions opts, ConversionBudget
+                budget) {
+            return KleeneEliminator.INSTANCE.eliminateToExpr(a, opts, budget);
+        }
+    },
+
+    /**
+     * solve the equations of the states by Arden's lemma, see
+     * {@link ArdenEliminator}; automata are converted without building a
+     * gnfa
+     */
+    ARDEN {
+        @Override
+        Expr eliminate(Gnfa a, ConversionOptions opts, ConversionBudget
+                budget) {
+            return ArdenEliminator.INSTANCE.eliminateToExpr(a, opts, budget);
+        }
+
+        @Override
+        Expr convert(Automaton a, LabelTranslator ltrans, ConversionOptions
+                opts, ConversionBudget budget, ExprFactory exprs) {
+            return ArdenEliminator.INSTANCE.convert(a, ltrans, opts, budget,
+                    exprs);
+        }
+    };
+
+    abstract Expr eliminate(Gnfa a, ConversionOptions opts, ConversionBudget
+            budget);
+
+    /**
+     * convert an automaton into an expression
+     */
+    Expr convert(Automaton a, LabelTranslator ltrans, ConversionOptions opts,
+                 ConversionBudget budget, ExprFactory exprs) {
+        return eliminate(getGnfa(a, ltrans, budget, exprs), opts, budget);
+    }
+
+    /**
+     * convert an automaton into a gnfa and report the time to the listener
+     */
+    static Gnfa getGnfa(Automaton a, LabelTranslator ltrans, ConversionBudget
+            budget, ExprFactory exprs) {
+        EliminationListener l = budget.getListener();
+        if (l == null) {
+            return Converter.INSTANCE.getGnfaFromAutomaton(a, ltrans, budget,
+                    exprs);
+        }
+        long t = System.nanoTime();
+        Gnfa gnfa = Converter.INSTANCE.getGnfaFromAutomaton(a, ltrans,
+                budget, exprs);
+        l.onPhase(EliminationListener.Phase.CONVERT, System.nanoTime() - t);
+        return gnfa;
+    }
+}
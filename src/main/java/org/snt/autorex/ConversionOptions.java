@@ -0,0 +1,225 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.cache.ConversionCache;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options and resource limits for converting an automaton into a regular
+ * expression. A limit of 0 means that the corresponding resource is not
+ * limited.
+ */
+public class ConversionOptions {
+
+    private ConversionEngine engine = ConversionEngine.STATE_ELIMINATION;
+    private EliminationHeuristic order = EliminationStrategy.WEIGHT;
+    private ForkJoinPool pool = null;
+    private boolean minimize = false;
+    private long maxWallTime = 0L;
+    private long maxLabelLength = 0L;
+    private int maxEdgeCount = 0;
+    private CancellationToken token = null;
+    private ConversionCache cache = null;
+    private EliminationListener listener = null;
+    private Portfolio portfolio = null;
+
+    public ConversionEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @param engine the algorithm that converts the gnfa
+     * @return this
+     */
+    public ConversionOptions setEngine(ConversionEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public EliminationHeuristic getOrder() {
+        return order;
+    }
+
+    /**
+     * @param order the heuristic that determines the state elimination order
+     * @return this
+     */
+    public ConversionOptions setOrder(EliminationHeuristic order) {
+        this.order = order;
+        return this;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @param pool if set, the inner states of strongly connected components
+     *             are eliminated in parallel on this pool
+     * @return this
+     */
+    public ConversionOptions setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    public boolean isMinimize() {
+        return minimize;
+    }
+
+    /**
+     * @param minimize if true, the automaton is minimized and its dead
+     *                 states are removed before it is converted; large
+     *                 automata are minimized in parallel if a pool is set
+     * @return this
+     */
+    public ConversionOptions setMinimize(boolean minimize) {
+        this.minimize = minimize;
+        return this;
+    }
+
+    /**
+     * @return maximum wall time in nanoseconds
+     */
+    public long getMaxWallTime() {
+        return maxWallTime;
+    }
+
+    /**
+     * @param time maximum wall time of a conversion
+     * @param unit unit of time
+     * @return this
+     */
+    public ConversionOptions setMaxWallTime(long time, TimeUnit unit) {
+        this.maxWallTime = unit.toNanos(time);
+        return this;
+    }
+
+    public long getMaxLabelLength() {
+        return maxLabelLength;
+    }
+
+    /**
+     * @param maxLabelLength maximum length of an intermediate transition
+     *                       label
+     * @return this
+     */
+    public ConversionOptions setMaxLabelLength(long maxLabelLength) {
+        this.maxLabelLength = maxLabelLength;
+        return this;
+    }
+
+    public int getMaxEdgeCount() {
+        return maxEdgeCount;
+    }
+
+    /**
+     * @param maxEdgeCount maximum number of transitions in the gnfa
+     * @return this
+     */
+    public ConversionOptions setMaxEdgeCount(int maxEdgeCount) {
+        this.maxEdgeCount = maxEdgeCount;
+        return this;
+    }
+
+    public CancellationToken getCancellationToken() {
+        return token;
+    }
+
+    /**
+     * @param token a token through which the conversion can be cancelled
+     * @return this
+     */
+    public ConversionOptions setCancellationToken(CancellationToken token) {
+        this.token = token;
+        return this;
+    }
+
+    public ConversionCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @param cache if set, results are looked up in and stored to this cache
+     * @return this
+     */
+    public ConversionOptions setCache(ConversionCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    public EliminationListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener if set, progress and timings are reported to this
+     *                 listener
+     * @return this
+     */
+    public ConversionOptions setListener(EliminationListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public Portfolio getPortfolio() {
+        return portfolio;
+    }
+
+    /**
+     * @param portfolio if set, the strategies of the portfolio are run
+     *                  concurrently instead of the engine and order set in
+     *                  these options
+     * @return this
+     */
+    public ConversionOptions setPortfolio(Portfolio portfolio) {
+        this.portfolio = portfolio;
+        return this;
+    }
+
+    /**
+     * @return a copy of these options
+     */
+    ConversionOptions copy() {
+        ConversionOptions c = new ConversionOptions();
+        c.engine = engine;
+        c.order = order;
+        c.pool = pool;
+        c.minimize = minimize;
+        c.maxWallTime = maxWallTime;
+        c.maxLabelLength = maxLabelLength;
+        c.maxEdgeCount = maxEdgeCount;
+        c.token = token;
+        c.cache = cache;
+        c.listener = listener;
+        c.portfolio = portfolio;
+        return c;
+    }
+}
@@ -31,12 +31,19 @@ import dk.brics.automaton.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.IntGnfa;
 import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntList;
+import org.snt.autorex.utils.IntervalSet;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Utility class for converting an dk.brics automaton into our gnfa
@@ -48,8 +55,12 @@ public enum Converter {
 
     final static Logger LOGGER = LoggerFactory.getLogger(Converter.class);
 
+    // limits are checked whenever the number of transitions is a multiple
+    // of CHECK_INTERVAL + 1
+    private static final int CHECK_INTERVAL = 1023;
+
     public Gnfa getGnfaFromAutomaton(Automaton auto) {
-        return getGnfaFromAutomaton(auto, new DefaultLabelTranslator());
+        return getGnfaFromAutomaton(auto, Autorex.DEFAULT_TRANSLATOR);
     }
 
     /**
@@ -60,94 +71,298 @@ public enum Converter {
      * @return generalized non-deterministic finite automaton
      */
     public Gnfa getGnfaFromAutomaton(Automaton auto, LabelTranslator ltrans) {
-        Gnfa ag = new Gnfa();
-        AutomatonTrans at = new AutomatonTrans(auto, ltrans);
-
-        Map<State,org.snt.autorex.autograph.State> smap = new HashMap<>();
-        Set<org.snt.autorex.autograph.State> accepting = new HashSet<>();
-        Set<org.snt.autorex.autograph.State> start = new HashSet<>();
-
-        org.snt.autorex.autograph.State end =  new org.snt.autorex.autograph
-                .State(org.snt.autorex
-                .autograph.State.Kind.ACCEPT);
-
-        org.snt.autorex.autograph.State init =  new org.snt.autorex.autograph
-                .State(org.snt.autorex
-                .autograph.State.Kind.START);
-
-        ag.addVertex(end);
-        ag.addVertex(init);
-
-
-        for(FullTransition ft : at.transitions){
-            State src = ft.getSourceState();
-            State dst = ft.getTargetState();
-
-            org.snt.autorex.autograph.State arxsrc = getStateFrom(start,
-                    accepting, smap, at, src);
-            org.snt.autorex.autograph.State arxdst = getStateFrom(start,
-                    accepting, smap, at, dst);
-
-            Transition t = null;
-            if(ag.containsEdge(arxsrc, arxdst)) {
-                t = ag.getEdge(arxsrc, arxdst);
-                t.getLabel().append("|");
-                t.getLabel().append(ft
-                        .getTransitionLabel());
-            } else {
-                t = new Transition(arxsrc, arxdst, Transition.Kind
-                        .MATCH,ft
-                        .getTransitionLabel());
+        return getGnfaFromAutomaton(auto, ltrans, new ConversionOptions());
+    }
+
+    /**
+     * convert dk.brics automaton into gnfa
+     * @param auto dk.brics automaton
+     * @param ltrans label translator
+     * @param opts conversion options
+     *
+     * @return generalized non-deterministic finite automaton
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public Gnfa getGnfaFromAutomaton(Automaton auto, LabelTranslator ltrans,
+                                     ConversionOptions opts) {
+        return getGnfaFromAutomaton(auto, ltrans, new ConversionBudget(opts));
+    }
+
+    Gnfa getGnfaFromAutomaton(Automaton auto, LabelTranslator ltrans,
+                              ConversionBudget budget) {
+        return getGnfaFromAutomaton(auto, ltrans, budget, new ExprFactory());
+    }
+
+    /**
+     * convert dk.brics automaton directly into the integer representation
+     * of a gnfa without building a {@link Gnfa} first
+     * @param auto dk.brics automaton
+     * @param ltrans label translator
+     *
+     * @return integer gnfa
+     */
+    public IntGnfa getIntGnfaFromAutomaton(Automaton auto, LabelTranslator
+            ltrans) {
+        return getIntGnfaFromAutomaton(auto, ltrans, new ConversionOptions());
+    }
+
+    /**
+     * convert dk.brics automaton directly into the integer representation
+     * of a gnfa without building a {@link Gnfa} first
+     * @param auto dk.brics automaton
+     * @param ltrans label translator
+     * @param opts conversion options
+     *
+     * @return integer gnfa
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     */
+    public IntGnfa getIntGnfaFromAutomaton(Automaton auto, LabelTranslator
+            ltrans, ConversionOptions opts) {
+        ExprFactory exprs = new ExprFactory();
+        String singleton = auto.getSingleton();
+        if (singleton != null) {
+            IntGnfa ret = IntGnfa.create(2, 0, 1, exprs);
+            ret.setLabel(0, 1, getSingletonLabel(singleton, ltrans, exprs));
+            return ret;
+        }
+        IntGnfaSink sink = new IntGnfaSink();
+        walk(auto, ltrans, new ConversionBudget(opts), exprs, sink);
+        return sink.getIntGnfa(exprs);
+    }
+
+    /**
+     * a sink that buffers the transitions until the number of states is
+     * known; the automaton states keep their numbers, the start and the
+     * accepting state are appended
+     */
+    static final class IntGnfaSink implements Sink {
+
+        private int states = 0;
+        private final IntList src = new IntList();
+        private final IntList dst = new IntList();
+        private final List<Expr> lbls = new ArrayList<>();
+        private final IntList accepting = new IntList();
+
+        @Override
+        public void state(int id) {
+            states++;
+        }
+
+        @Override
+        public void edge(int src, int dst, Expr lbl) {
+            this.src.add(src);
+            this.dst.add(dst);
+            lbls.add(lbl);
+        }
+
+        @Override
+        public void accept(int id) {
+            accepting.add(id);
+        }
+
+        IntGnfa getIntGnfa(ExprFactory exprs) {
+            int start = states;
+            int end = states + 1;
+            IntGnfa ret = IntGnfa.create(states + 2, start, end, exprs);
+            ret.setLabel(start, 0, exprs.epsilon());
+            // the walk merges parallel transitions, hence there is at most
+            // one label per pair of states
+            for (int i = 0; i < lbls.size(); i++) {
+                ret.setLabel(src.get(i), dst.get(i), lbls.get(i));
             }
+            for (int i = 0; i < accepting.size(); i++) {
+                ret.setLabel(accepting.get(i), end, exprs.epsilon());
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * receives the states and transitions of an automaton from
+     * {@link #walk(Automaton, LabelTranslator, ConversionBudget, ExprFactory,
+     * Sink)}
+     */
+    interface Sink {
+        /**
+         * a new state has been discovered; states are numbered densely in
+         * the order of their discovery starting with 0 for the initial
+         * state
+         * @param id state number
+         */
+        void state(int id);
+
+        /**
+         * a transition between two discovered states
+         * @param src source state
+         * @param dst destination state
+         * @param lbl the label of all character ranges from src to dst
+         */
+        void edge(int src, int dst, Expr lbl);
+
+        /**
+         * state id is accepting
+         * @param id state number
+         */
+        void accept(int id);
+    }
+
+    /**
+     * convert dk.brics automaton into gnfa; the states and transitions of
+     * auto are read once in breadth-first order and auto is neither cloned
+     * nor modified. The character ranges of parallel transitions between
+     * two states are merged into a single character class.
+     */
+    Gnfa getGnfaFromAutomaton(Automaton auto, LabelTranslator ltrans,
+                              ConversionBudget budget, ExprFactory exprs) {
+        GnfaSink sink = new GnfaSink(exprs);
 
-            ag.addVertex(arxdst);
-            ag.addVertex(arxsrc);
-            ag.addEdge(t);
+        String singleton = auto.getSingleton();
+        if (singleton != null) {
+            // do not expand singleton automata
+            sink.singleton(getSingletonLabel(singleton, ltrans, exprs));
+        } else {
+            walk(auto, ltrans, budget, exprs, sink);
         }
+        return sink.getGnfa();
+    }
+
+    /**
+     * a sink that builds a gnfa with a single start and a single accepting
+     * state
+     */
+    static final class GnfaSink implements Sink {
+
+        private final Gnfa ag;
+        private final org.snt.autorex.autograph.State init;
+        private final org.snt.autorex.autograph.State end;
+        private final List<org.snt.autorex.autograph.State> states = new
+                ArrayList<>();
 
-        accepting.forEach(
-            a -> {
-                Transition t = new Transition(a,end,Transition.Kind
-                        .EPSILON);
-                ag.addEdge(t);
+        GnfaSink(ExprFactory exprs) {
+            ag = new Gnfa(exprs);
+            end = ag.createState(org.snt.autorex.autograph.State.Kind.ACCEPT);
+            init = ag.createState(org.snt.autorex.autograph.State.Kind.START);
+            ag.addVertex(end);
+            ag.addVertex(init);
+        }
+
+        /**
+         * connect start and accepting state by a single transition
+         * @param lbl the label of the transition
+         */
+        void singleton(Expr lbl) {
+            ag.addEdge(new Transition(init, end, Transition.Kind.MATCH, lbl));
+        }
+
+        @Override
+        public void state(int id) {
+            org.snt.autorex.autograph.State s = ag.createState(org.snt
+                    .autorex.autograph.State.Kind.NORMAL);
+            ag.addVertex(s);
+            states.add(s);
+            if (id == 0) {
+                ag.addEdge(new Transition(init, s, Transition.Kind.EPSILON));
             }
-        );
+        }
 
-        start.forEach(
-                a -> {
-                    Transition t = new Transition(init,a, Transition.Kind
-                            .EPSILON);
-                    ag.addEdge(t);
-                }
-        );
+        @Override
+        public void edge(int src, int dst, Expr lbl) {
+            ag.addEdge(new Transition(states.get(src), states.get(dst),
+                    Transition.Kind.MATCH, lbl));
+        }
 
-        return ag;
+        @Override
+        public void accept(int id) {
+            ag.addEdge(new Transition(states.get(id), end, Transition.Kind
+                    .EPSILON));
+        }
+
+        Gnfa getGnfa() {
+            return ag;
+        }
     }
 
+    /**
+     * read the states and transitions of auto in breadth-first order and
+     * report them to sink; the transitions of a state are reported after
+     * the state itself and before the state is reported as accepting
+     * @param auto dk.brics automaton
+     * @param ltrans label translator
+     * @param budget resource limits
+     * @param exprs expression factory for the labels
+     * @param sink the receiver
+     */
+    void walk(Automaton auto, LabelTranslator ltrans, ConversionBudget budget,
+              ExprFactory exprs, Sink sink) {
+        Map<State, Integer> smap = new IdentityHashMap<>();
+        Deque<State> worklist = new ArrayDeque<>();
+
+        getState(sink, smap, worklist, auto.getInitialState());
 
-    private org.snt.autorex.autograph.State getStateFrom
-            (Set<org.snt.autorex.autograph.State> start,
-             Set<org.snt.autorex.autograph.State> accepting,
-             Map<State,org.snt.autorex.autograph.State> smap,
-             AutomatonTrans a, State s) {
+        // character ranges of the parallel transitions of the current state
+        // grouped by destination; the builders are reused
+        Map<State, Integer> slot = new IdentityHashMap<>();
+        List<State> dsts = new ArrayList<>();
+        List<IntervalSet.Builder> ranges = new ArrayList<>();
+        int edges = 0;
 
-        if(smap.containsKey(s))
-            return smap.get(s);
+        while (!worklist.isEmpty()) {
+            State s = worklist.poll();
+            int src = smap.get(s);
 
-        org.snt.autorex.autograph.State ret = new org.snt.autorex.autograph
-                .State(org.snt.autorex
-                .autograph.State.Kind.NORMAL);
+            for (dk.brics.automaton.Transition t : s.getTransitions()) {
+                Integer i = slot.get(t.getDest());
+                if (i == null) {
+                    i = dsts.size();
+                    slot.put(t.getDest(), i);
+                    dsts.add(t.getDest());
+                    if (ranges.size() == i)
+                        ranges.add(new IntervalSet.Builder());
+                }
+                ranges.get(i).add(t.getMin(), t.getMax());
+            }
+
+            for (int i = 0; i < dsts.size(); i++) {
+                int dst = getState(sink, smap, worklist, dsts.get(i));
+                IntervalSet.Builder b = ranges.get(i);
+                Expr lbl = exprs.atom(ltrans.getCharClassString(b.build()));
+                b.clear();
+                sink.edge(src, dst, lbl);
+
+                if ((++edges & CHECK_INTERVAL) == 0) {
+                    budget.check(smap.size(), edges);
+                }
+            }
+
+            if (s.isAccept()) {
+                sink.accept(src);
+            }
 
-        if(s.isAccept()) {
-            accepting.add(ret);
+            slot.clear();
+            dsts.clear();
         }
+    }
 
-        if(s.equals(a.init)) {
-            start.add(ret);
+    static Expr getSingletonLabel(String singleton, LabelTranslator
+            ltrans, ExprFactory exprs) {
+        StringBuilder sb = new StringBuilder(singleton.length());
+        for (int i = 0; i < singleton.length(); i++) {
+            char c = singleton.charAt(i);
+            ltrans.appendRange(c, c, sb);
         }
+        return exprs.atom(sb.toString());
+    }
 
-        smap.put(s,ret);
+    private static int getState(Sink sink, Map<State, Integer> smap,
+                                Deque<State> worklist, State s) {
+        Integer ret = smap.get(s);
+        if (ret != null)
+            return ret;
 
-        return ret;
+        int id = smap.size();
+        smap.put(s, id);
+        worklist.add(s);
+        sink.state(id);
+        return id;
     }
 }
@@ -26,24 +26,112 @@
 
 package org.snt.autorex;
 
+import dk.brics.automaton.State;
 import dk.brics.automaton.Transition;
+import org.snt.autorex.cache.StableId;
 import org.snt.autorex.utils.EscapeUtils;
+import org.snt.autorex.utils.IntervalSet;
 
 /**
  * Created by julian on 12/04/2017.
  */
-public class DefaultLabelTranslator implements LabelTranslator {
+public class DefaultLabelTranslator implements LabelTranslator, StableId {
+
+    private static final State DUMMY = new State();
 
     @Override
     public String getTransitionString(Transition t) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = new StringBuilder(t.getMin() == t.getMax() ? 2 : 5);
+        appendRange(t.getMin(), t.getMax(), sb);
+        return sb.toString();
+    }
+
+    /**
+     * append a single, escaped character or a character class
+     * @param min lower bound (inclusive)
+     * @param max upper bound (inclusive)
+     * @param sb the builder to append to
+     */
+    @Override
+    public void appendRange(char min, char max, StringBuilder sb) {
+        if (min == max) {
+            EscapeUtils.appendEscaped(sb, min);
+            return;
+        }
+        sb.append('[');
+        appendClassRange(sb, min, max);
+        sb.append(']');
+    }
 
-        if (t.getMax() == t.getMin()) {
-            sb.append(EscapeUtils.escapeSpecialCharacters(String.valueOf(t.getMin
-                    ())));
-        } else {
-            sb.append("[" + t.getMin() + "-" + t.getMax() + "]");
+    /**
+     * append a set of characters as a single character class such as
+     * [abd-f]
+     * @param set non-empty set of characters
+     * @param sb the builder to append to
+     */
+    @Override
+    public void appendCharClass(IntervalSet set, StringBuilder sb) {
+        if (set.size() == 1) {
+            appendRange(set.getMin(0), set.getMax(0), sb);
+            return;
+        }
+        sb.append('[');
+        for (int i = 0; i < set.size(); i++) {
+            appendClassRange(sb, set.getMin(i), set.getMax(i));
         }
+        sb.append(']');
+    }
+
+    @Override
+    public String getCharClassString(IntervalSet set) {
+        if (set.size() == 1)
+            return getTransitionString(new Transition(set.getMin(0), set
+                    .getMax(0), DUMMY));
+        StringBuilder sb = new StringBuilder(4 * set.size() + 2);
+        appendCharClass(set, sb);
         return sb.toString();
     }
+
+    private static void appendClassRange(StringBuilder sb, char min, char
+            max) {
+        appendClassChar(sb, min);
+        if (max > min) {
+            // a range of two characters is shorter without the dash
+            if (max > min + 1)
+                sb.append('-');
+            appendClassChar(sb, max);
+        }
+    }
+
+    private static void appendClassChar(StringBuilder sb, char c) {
+        switch (c) {
+            case '\\':
+            case '[':
+            case ']':
+            case '^':
+            case '-':
+            case '&':
+                sb.append('\\');
+        }
+        sb.append(c);
+    }
+
+    /**
+     * @return the identifier of this translator; subclasses are not stable
+     * unless they override this method
+     */
+    @Override
+    public String stableId() {
+        return getClass() == DefaultLabelTranslator.class ? "default" : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
 }
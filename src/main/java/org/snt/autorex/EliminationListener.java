@@ -0,0 +1,102 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+/**
+ * Receives progress reports of conversions. A listener is attached with
+ * {@link ConversionOptions#setListener(EliminationListener)}; if none is
+ * attached, no measurements are taken. Since components may be eliminated
+ * in parallel, implementations have to be thread-safe.
+ */
+public interface EliminationListener {
+
+    enum Phase {
+        /** minimization of the automaton, see {@link Preprocessor} */
+        PREPROCESS,
+        /** translation of the automaton into a gnfa */
+        CONVERT,
+        /**
+         * splicing out chains of states with exactly one incoming and one
+         * outgoing transition before the rip loop, see
+         * {@link StateEliminator#handleTrivialCases}
+         */
+        TRIVIAL,
+        /** the state elimination loop */
+        RIP,
+        /** rendering of the final expression */
+        RENDER
+    }
+
+    /**
+     * called after the automaton has been minimized
+     * @param before number of states of the input automaton
+     * @param after number of states of the minimized automaton
+     */
+    default void onPreprocess(int before, int after) {
+    }
+
+    /**
+     * called before the elimination starts
+     * @param states number of states of the gnfa
+     * @param edges number of transitions of the gnfa
+     */
+    default void onStart(int states, int edges) {
+    }
+
+    /**
+     * called after a phase is completed
+     * @param phase the phase
+     * @param nanos time spent in phase
+     */
+    default void onPhase(Phase phase, long nanos) {
+    }
+
+    /**
+     * called after a state has been ripped out
+     * @param created number of transition labels that were created
+     * @param states number of remaining states
+     * @param edges number of remaining transitions
+     * @param maxLabelLength length of the longest label created in this step
+     */
+    default void onRip(int created, int states, int edges, long
+            maxLabelLength) {
+    }
+
+    /**
+     * called after the strategies of a portfolio have been run
+     * @param result the outcome of all strategies
+     */
+    default void onPortfolio(PortfolioResult result) {
+    }
+
+    /**
+     * called once the final expression is known
+     * @param length length of the final expression
+     */
+    default void onResult(long length) {
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A listener that aggregates the reports of any number of conversions. It
+ * is thread-safe and can be shared by concurrent conversions.
+ */
+public class EliminationMetrics implements EliminationListener {
+
+    /**
+     * aggregated outcomes of a portfolio strategy
+     */
+    public static final class StrategyStats {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        public long getRuns() {
+            return runs.sum();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        public long getWins() {
+            return wins.sum();
+        }
+
+        /**
+         * @return total time spent in the strategy in nanoseconds
+         */
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "runs=" + getRuns() + ", completed=" + getCompleted() +
+                    ", wins=" + getWins() + ", time=" + getNanos() / 1000L +
+                    "us";
+        }
+    }
+
+    private final Map<String, StrategyStats> strategies = new
+            ConcurrentHashMap<>();
+
+    private final LongAdder conversions = new LongAdder();
+    private final LongAdder removedStates = new LongAdder();
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase
+            .values().length);
+    private final LongAdder ripSteps = new LongAdder();
+    private final LongAdder createdEdges = new LongAdder();
+    private final LongAdder inputEdges = new LongAdder();
+    private final LongAdder resultLength = new LongAdder();
+    private final AtomicLong maxCreated = new AtomicLong();
+    private final AtomicLong maxLabelLength = new AtomicLong();
+    private final AtomicLong peakEdgeCount = new AtomicLong();
+
+    @Override
+    public void onPreprocess(int before, int after) {
+        removedStates.add(before - after);
+    }
+
+    @Override
+    public void onStart(int states, int edges) {
+        conversions.increment();
+        inputEdges.add(edges);
+        max(peakEdgeCount, edges);
+    }
+
+    @Override
+    public void onPhase(Phase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    @Override
+    public void onRip(int created, int states, int edges, long
+            maxLabelLength) {
+        ripSteps.increment();
+        createdEdges.add(created);
+        max(maxCreated, created);
+        max(this.maxLabelLength, maxLabelLength);
+        max(peakEdgeCount, edges);
+    }
+
+    @Override
+    public void onPortfolio(PortfolioResult result) {
+        for (PortfolioResult.Outcome o : result.getOutcomes()) {
+            StrategyStats s = strategies.computeIfAbsent(o.getName(), k ->
+                    new StrategyStats());
+            s.runs.increment();
+            s.nanos.add(o.getNanos());
+            if (o.getStatus() == PortfolioResult.Status.COMPLETED)
+                s.completed.increment();
+            if (o.getName().equals(result.getWinner()))
+                s.wins.increment();
+        }
+    }
+
+    @Override
+    public void onResult(long length) {
+        resultLength.add(length);
+    }
+
+    private static void max(AtomicLong v, long x) {
+        if (x > v.get()) {
+            v.accumulateAndGet(x, Math::max);
+        }
+    }
+
+    /**
+     * @return number of eliminations that have been started
+     */
+    public long getConversions() {
+        return conversions.sum();
+    }
+
+    /**
+     * @param phase the phase
+     * @return total time spent in phase in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    /**
+     * @return number of states that have been removed by the minimization
+     */
+    public long getRemovedStates() {
+        return removedStates.sum();
+    }
+
+    public long getRipSteps() {
+        return ripSteps.sum();
+    }
+
+    /**
+     * @return total number of transition labels created by rip steps
+     */
+    public long getCreatedEdges() {
+        return createdEdges.sum();
+    }
+
+    /**
+     * @return average number of transition labels created per rip step
+     */
+    public double getCreatedEdgesPerStep() {
+        long steps = ripSteps.sum();
+        return steps == 0 ? 0.0 : (double) createdEdges.sum() / steps;
+    }
+
+    /**
+     * @return maximum number of transition labels created by one rip step
+     */
+    public long getMaxCreatedEdges() {
+        return maxCreated.get();
+    }
+
+    public long getMaxLabelLength() {
+        return maxLabelLength.get();
+    }
+
+    /**
+     * @return maximum number of transitions of a gnfa at any time
+     */
+    public long getPeakEdgeCount() {
+        return peakEdgeCount.get();
+    }
+
+    /**
+     * @return length of the resulting expressions divided by the number of
+     * transitions of the input gnfas
+     */
+    public double getBlowUp() {
+        long in = inputEdges.sum();
+        return in == 0 ? 0.0 : (double) resultLength.sum() / in;
+    }
+
+    /**
+     * @return the statistics of all portfolio strategies by name
+     */
+    public Map<String, StrategyStats> getStrategies() {
+        return Collections.unmodifiableMap(strategies);
+    }
+
+    public void reset() {
+        strategies.clear();
+        conversions.reset();
+        removedStates.reset();
+        for (int i = 0; i < phaseNanos.length(); i++) {
+            phaseNanos.set(i, 0L);
+        }
+        ripSteps.reset();
+        createdEdges.reset();
+        inputEdges.reset();
+        resultLength.reset();
+        maxCreated.set(0L);
+        maxLabelLength.set(0L);
+        peakEdgeCount.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("conversions=").append(getConversions());
+        for (Phase p : Phase.values()) {
+            sb.append(", ").append(p.name().toLowerCase()).append("=")
+                    .append(getPhaseNanos(p) / 1000L).append("us");
+        }
+        sb.append(", removedStates=").append(getRemovedStates());
+        sb.append(", ripSteps=").append(getRipSteps());
+        sb.append(", createdEdges=").append(getCreatedEdges());
+        sb.append(", maxLabelLength=").append(getMaxLabelLength());
+        sb.append(", peakEdgeCount=").append(getPeakEdgeCount());
+        sb.append(", blowUp=").append(String.format("%.2f", getBlowUp()));
+        strategies.forEach((k, v) -> sb.append(", ").append(k).append("=[")
+                .append(v).append("]"));
+        return sb.toString();
+    }
+}
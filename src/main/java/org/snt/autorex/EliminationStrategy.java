@@ -0,0 +1,71 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+/**
+ * Predefined elimination orderings
+ */
+public enum EliminationStrategy implements EliminationHeuristic {
+
+    /**
+     * no ordering -- states are eliminated in iteration order
+     */
+    FIRST {
+        @Override
+        public long cost(RipInfo info) {
+            return 0L;
+        }
+    },
+
+    /**
+     * prefer states with a small number of (in x out) transition pairs
+     */
+    DEGREE {
+        @Override
+        public long cost(RipInfo info) {
+            return (long) info.getIn() * info.getOut() + (info.hasLoop() ? 1
+                    : 0);
+        }
+    },
+
+    /**
+     * prefer states whose elimination creates the least amount of label
+     * text; based on the state weight heuristic of Delgado and Morais,
+     * Approximation to the smallest regular expression for a given regular
+     * language, CIAA 2004
+     */
+    WEIGHT {
+        @Override
+        public long cost(RipInfo info) {
+            long in = info.getIn();
+            long out = info.getOut();
+            return info.getInLength() * (out - 1) +
+                    info.getOutLength() * (in - 1) +
+                    info.getLoopLength() * (in * out - 1);
+        }
+    };
+}
@@ -28,6 +28,7 @@ package org.snt.autorex;
 
 import dk.brics.automaton.State;
 import dk.brics.automaton.Transition;
+import org.snt.autorex.utils.IntervalSet;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -73,10 +74,15 @@ public class FullTransition {
         }
     }
 
-    public static int id = 0;
-
+    /**
+     * @param src source state
+     * @param trans dk.brics transition
+     * @param dest destination state
+     * @param ltrans label translator
+     * @param tid id that is unique within the owning automaton
+     */
     public FullTransition(State src, Transition trans, State dest,
-                          LabelTranslator ltrans) {
+                          LabelTranslator ltrans, int tid) {
         this.src = src;
         this.trans = new HashSet<>();
         this.ltrans = ltrans;
@@ -87,7 +93,7 @@ public class FullTransition {
         }
 
         this.dest = dest;
-        this.tid = id ++;
+        this.tid = tid;
         this.isEpsilon = false;
         this.kind = Kind.MATCH;
         this.recentlyAdded = trans;
@@ -138,18 +144,13 @@ public class FullTransition {
         if(this.trans.size() == 1)
             return ltrans.getTransitionString(this.trans.iterator().next());
 
-        StringBuilder sb = new StringBuilder();
+        IntervalSet.Builder b = new IntervalSet.Builder();
 
         for(Transition t : this.trans) {
-            if(sb.length() > 0)
-                sb.append("|");
-            sb.append(ltrans.getTransitionString(t));
+            b.add(t.getMin(), t.getMax());
         }
 
-        sb.insert(0,"(");
-        sb.append(")");
-
-        return sb.toString();
+        return ltrans.getCharClassString(b.build());
     }
 
     public String getLabel() {
@@ -160,6 +161,10 @@ public class FullTransition {
         return this.kind;
     }
 
+    public int getId() {
+        return this.tid;
+    }
+
     @Override
     public String toString() {
         java.lang.StringBuilder sb = new java.lang.StringBuilder();
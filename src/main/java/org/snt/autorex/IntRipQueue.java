@@ -0,0 +1,121 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import java.util.Arrays;
+
+/**
+ * The primitive counterpart of {@link RipQueue} for integer states: a
+ * binary heap of (cost, state) pairs with lazy re-scoring.
+ */
+class IntRipQueue {
+
+    private long[] costs;
+    private int[] states;
+    private int size;
+
+    private final long[] current;
+    private final boolean[] queued;
+
+    IntRipQueue(int nstates) {
+        this.costs = new long[Math.max(nstates, 16)];
+        this.states = new int[costs.length];
+        this.current = new long[nstates];
+        this.queued = new boolean[nstates];
+        this.size = 0;
+    }
+
+    /**
+     * insert state s or update its cost
+     * @param s state
+     * @param cost the new cost of s
+     */
+    void update(int s, long cost) {
+        if (queued[s] && current[s] == cost) {
+            return;
+        }
+        queued[s] = true;
+        current[s] = cost;
+        push(s, cost);
+    }
+
+    /**
+     * @return the cheapest state or -1 if the queue is empty
+     */
+    int poll() {
+        while (size > 0) {
+            int s = states[0];
+            long c = costs[0];
+            pop();
+            if (queued[s] && current[s] == c) {
+                queued[s] = false;
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    private void push(int s, long cost) {
+        if (size == costs.length) {
+            costs = Arrays.copyOf(costs, size << 1);
+            states = Arrays.copyOf(states, size << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (costs[p] <= cost) {
+                break;
+            }
+            costs[i] = costs[p];
+            states[i] = states[p];
+            i = p;
+        }
+        costs[i] = cost;
+        states[i] = s;
+    }
+
+    private void pop() {
+        long cost = costs[--size];
+        int s = states[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int c = (i << 1) + 1;
+            if (c + 1 < size && costs[c + 1] < costs[c]) {
+                c++;
+            }
+            if (cost <= costs[c]) {
+                break;
+            }
+            costs[i] = costs[c];
+            states[i] = states[c];
+            i = c;
+        }
+        costs[i] = cost;
+        states[i] = s;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Conversion based on the dynamic programming formulation of McNaughton and
+ * Yamada, Regular Expressions and State Graphs for Automata, 1960.
+ * The labels R(i,j) are kept in a dense n x n array; in step k, every
+ * R(i,j) is replaced by R(i,j) | R(i,k) R(k,k)* R(k,j). The rows of a step
+ * are independent of each other, so that they are updated in parallel if a
+ * pool is set in the {@link ConversionOptions}. Only the entries that are
+ * needed for R(start, accept) are computed.
+ *
+ * The intermediate states are visited in the order of their initial cost
+ * with respect to the elimination heuristic. Since the array needs n^2
+ * slots, larger graphs are handed to the {@link StateEliminator}.
+ */
+public enum KleeneEliminator {
+
+    INSTANCE;
+
+    final static Logger LOGGER = LoggerFactory.getLogger(KleeneEliminator.class);
+
+    /**
+     * graphs with more states are converted with the state eliminator
+     */
+    public static final int MAX_STATES = 4096;
+
+    /**
+     * minimum number of rows for which a step is parallelized
+     */
+    private static final int PARALLEL_ROWS = 64;
+
+    /**
+     * convert a gnfa into a regular expression
+     * @param a gnfa
+     * @return the corresponding string for a regular expression.
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a) {
+        return eliminate(a, new ConversionOptions());
+    }
+
+    /**
+     * convert a gnfa into a regular expression
+     * @param a gnfa
+     * @param opts conversion options
+     * @return the corresponding string for a regular expression.
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a, ConversionOptions opts) {
+        return eliminateToExpr(a, opts, new ConversionBudget(opts)).toString();
+    }
+
+    Expr eliminateToExpr(Gnfa a, ConversionOptions opts, ConversionBudget
+            budget) {
+        EliminationListener l = budget.getListener();
+        long t = 0L;
+        if (l != null) {
+            l.onStart(a.vertexSet().size(), a.edgeSet().size());
+            t = System.nanoTime();
+        }
+        StateEliminator.INSTANCE.handleTrivialCases(a);
+        if (l != null) {
+            l.onPhase(EliminationListener.Phase.TRIVIAL, System.nanoTime() - t);
+        }
+
+        int n = a.vertexSet().size();
+        if (n > MAX_STATES) {
+            LOGGER.debug("{} states exceed the array limit", n);
+            return StateEliminator.INSTANCE.eliminateToExpr(a, opts, budget);
+        }
+
+        if (l != null) {
+            t = System.nanoTime();
+        }
+        Matrix m = new Matrix(a);
+        int [] order = getOrder(m, opts.getOrder());
+        for (int k : order) {
+            step(m, k, opts.getPool(), budget, l);
+        }
+        Expr lbl = m.get(m.start, m.accept);
+        if (lbl == null) {
+            throw new IllegalArgumentException("the automaton accepts the " +
+                    "empty language");
+        }
+        if (l != null) {
+            l.onPhase(EliminationListener.Phase.RIP, System.nanoTime() - t);
+            l.onResult(lbl.length());
+        }
+        return lbl;
+    }
+
+    /**
+     * dense label array of a gnfa
+     */
+    private static final class Matrix {
+        final int n;
+        final int start;
+        final int accept;
+        final Expr [] r;
+        // the gnfa state ids of the indices
+        final int [] ids;
+        final ExprFactory exprs;
+        int edges;
+        int live;
+
+        Matrix(Gnfa a) {
+            Map<State, Integer> idx = new HashMap<>();
+            this.ids = new int[a.vertexSet().size()];
+            for (State s : a.vertexSet()) {
+                ids[idx.size()] = s.getId();
+                idx.put(s, idx.size());
+            }
+            this.n = idx.size();
+            this.start = idx.get(a.getStart());
+            this.accept = idx.get(a.getEnd());
+            this.r = new Expr[n * n];
+            this.exprs = a.getExprFactory();
+            this.live = n;
+            for (Transition t : a.edgeSet()) {
+                int p = idx.get(t.getSource()) * n + idx.get(t.getTarget());
+                if (r[p] == null) {
+                    r[p] = t.getLabel();
+                    edges++;
+                } else {
+                    r[p] = exprs.union(r[p], t.getLabel());
+                }
+            }
+        }
+
+        Expr get(int i, int j) {
+            return r[i * n + j];
+        }
+    }
+
+    /**
+     * @return the intermediate states sorted by their initial cost
+     */
+    private static int [] getOrder(Matrix m, EliminationHeuristic h) {
+        RipInfo info = new RipInfo();
+        long [] cost = new long[m.n];
+        Integer [] ks = IntStream.range(0, m.n).filter(k -> k != m.start &&
+                k != m.accept).boxed().toArray(Integer[]::new);
+        for (int k : ks) {
+            info.reset(m.ids[k]);
+            for (int i = 0; i < m.n; i++) {
+                if (i == k)
+                    continue;
+                Expr in = m.get(i, k);
+                if (in != null)
+                    info.addIncoming(in.length());
+                Expr out = m.get(k, i);
+                if (out != null)
+                    info.addOutgoing(out.length());
+            }
+            Expr loop = m.get(k, k);
+            if (loop != null)
+                info.setLoop(loop.length());
+            cost[k] = h.cost(info);
+        }
+        Arrays.sort(ks, (x, y) -> Long.compare(cost[x], cost[y]));
+        return Arrays.stream(ks).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * compute R(i,j) | R(i,k) R(k,k)* R(k,j) for all i, j != k and remove
+     * row and column k
+     */
+    private static void step(Matrix m, int k, ForkJoinPool pool,
+                             ConversionBudget budget, EliminationListener l) {
+        final int n = m.n;
+        final Expr [] r = m.r;
+        final Expr loop = r[k * n + k];
+        final Expr [] row = Arrays.copyOfRange(r, k * n, k * n + n);
+        final int [] cols = IntStream.range(0, n).filter(j -> j != k &&
+                j != m.start && row[j] != null).toArray();
+        final int [] rows = IntStream.range(0, n).filter(i -> i != k && i
+                != m.accept && r[i * n + k] != null).toArray();
+        final Expr [] col = new Expr[rows.length];
+        for (int x = 0; x < rows.length; x++) {
+            col[x] = r[rows[x] * n + k];
+        }
+
+        int removed = 0;
+        for (int i = 0; i < n; i++) {
+            if (r[i * n + k] != null) {
+                r[i * n + k] = null;
+                removed++;
+            }
+            if (i != k && r[k * n + i] != null) {
+                r[k * n + i] = null;
+                removed++;
+            }
+        }
+
+        final long [] maxLen = new long[rows.length];
+        int added;
+        if (pool != null && rows.length >= PARALLEL_ROWS) {
+            added = pool.submit(() -> IntStream.range(0, rows.length)
+                    .parallel().map(x -> updateRow(m, x, rows[x], col[x],
+                            loop, row, cols, budget, maxLen)).sum()).join();
+        } else {
+            added = 0;
+            for (int x = 0; x < rows.length; x++) {
+                added += updateRow(m, x, rows[x], col[x], loop, row, cols,
+                        budget, maxLen);
+            }
+        }
+
+        m.edges += added - removed;
+        m.live--;
+        budget.step(m.live, m.edges);
+        if (l != null) {
+            l.onRip(rows.length * cols.length, m.live, m.edges, Arrays
+                    .stream(maxLen).max().orElse(0L));
+        }
+    }
+
+    /**
+     * update row i
+     * @return number of labels that did not exist before
+     */
+    private static int updateRow(Matrix m, int x, int i, Expr ik, Expr loop,
+                                 Expr [] row, int [] cols, ConversionBudget
+                                         budget, long [] maxLen) {
+        int added = 0;
+        int base = i * m.n;
+        for (int j : cols) {
+            Expr ij = m.r[base + j];
+            Expr lbl = StateEliminator.getRipLabel(m.exprs, ik, loop, row[j],
+                    ij);
+            budget.checkLabel(lbl.length());
+            maxLen[x] = Math.max(maxLen[x], lbl.length());
+            if (ij == null)
+                added++;
+            m.r[base + j] = lbl;
+        }
+        return added;
+    }
+}
@@ -1,8 +1,59 @@
 package org.snt.autorex;
 
 
+import dk.brics.automaton.State;
 import dk.brics.automaton.Transition;
+import org.snt.autorex.utils.IntervalSet;
 
 public interface LabelTranslator {
     String getTransitionString(Transition t);
+
+    /**
+     * append the label of the character range from min to max to sb; by
+     * default, the range is translated with
+     * {@link #getTransitionString(Transition)}
+     * @param min lower bound (inclusive)
+     * @param max upper bound (inclusive)
+     * @param sb the builder to append to
+     */
+    default void appendRange(char min, char max, StringBuilder sb) {
+        sb.append(getTransitionString(new Transition(min, max, new State())));
+    }
+
+    /**
+     * append the label of the union of several character ranges that label
+     * the transitions between the same pair of states to sb; by default,
+     * a single range is appended with
+     * {@link #appendRange(char, char, StringBuilder)} and multiple ranges
+     * are joined with |
+     * @param set non-empty set of characters
+     * @param sb the builder to append to
+     */
+    default void appendCharClass(IntervalSet set, StringBuilder sb) {
+        if (set.size() == 1) {
+            appendRange(set.getMin(0), set.getMax(0), sb);
+            return;
+        }
+
+        sb.append('(');
+        for (int i = 0; i < set.size(); i++) {
+            if (i > 0)
+                sb.append('|');
+            appendRange(set.getMin(i), set.getMax(i), sb);
+        }
+        sb.append(')');
+    }
+
+    /**
+     * translate the union of several character ranges that label the
+     * transitions between the same pair of states
+     * @param set non-empty set of characters
+     * @return the label that matches every character in set
+     * @see #appendCharClass(IntervalSet, StringBuilder)
+     */
+    default String getCharClassString(IntervalSet set) {
+        StringBuilder sb = new StringBuilder();
+        appendCharClass(set, sb);
+        return sb.toString();
+    }
 }
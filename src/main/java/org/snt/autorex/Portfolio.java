@@ -0,0 +1,375 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.cache.StableId;
+import org.snt.autorex.expr.Expr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A set of conversion strategies that are run concurrently on copies of
+ * the same gnfa. The shortest expression wins. Once the first strategy has
+ * finished, the others get a grace period (the slack) after which they are
+ * cancelled. A portfolio is used by setting it with
+ * {@link ConversionOptions#setPortfolio(Portfolio)} or by calling
+ * {@link #eliminate(Gnfa, ConversionOptions)}.
+ */
+public class Portfolio implements StableId {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(Portfolio.class);
+
+    /**
+     * a named combination of engine and elimination order
+     */
+    public static final class Strategy {
+        private final String name;
+        private final ConversionEngine engine;
+        private final Function<Gnfa, ? extends EliminationHeuristic> order;
+        // stable identifier of the order or null
+        private final String id;
+
+        Strategy(String name, ConversionEngine engine, Function<Gnfa, ?
+                extends EliminationHeuristic> order, String id) {
+            this.name = name;
+            this.engine = engine;
+            this.order = order;
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ConversionEngine getEngine() {
+            return engine;
+        }
+    }
+
+    private static final class ReverseTopological implements Function<Gnfa,
+            StateOrder>, StableId {
+        @Override
+        public StateOrder apply(Gnfa g) {
+            return StateOrder.reverseTopological(g);
+        }
+
+        @Override
+        public String stableId() {
+            return "reverse-topological";
+        }
+    }
+
+    private final List<Strategy> strategies = new ArrayList<>();
+    private long slack = TimeUnit.MILLISECONDS.toNanos(50L);
+    private Executor executor = null;
+
+    /**
+     * @return a portfolio of state elimination by weight, degree, reverse
+     * topological and two random orders, and of the Arden and Kleene
+     * engines
+     */
+    public static Portfolio defaults() {
+        return new Portfolio()
+                .add("weight", ConversionEngine.STATE_ELIMINATION,
+                        EliminationStrategy.WEIGHT)
+                .add("degree", ConversionEngine.STATE_ELIMINATION,
+                        EliminationStrategy.DEGREE)
+                .addPerGnfa("reverse-topological", ConversionEngine
+                        .STATE_ELIMINATION, new ReverseTopological())
+                .add("random-1", ConversionEngine.STATE_ELIMINATION,
+                        StateOrder.random(1L))
+                .add("random-2", ConversionEngine.STATE_ELIMINATION,
+                        StateOrder.random(2L))
+                .add("arden", ConversionEngine.ARDEN, EliminationStrategy
+                        .WEIGHT)
+                .add("kleene", ConversionEngine.KLEENE, EliminationStrategy
+                        .WEIGHT);
+    }
+
+    /**
+     * add a strategy
+     * @param name the name under which the strategy is reported
+     * @param engine conversion engine
+     * @param order elimination order
+     * @return this
+     */
+    public Portfolio add(String name, ConversionEngine engine,
+                         EliminationHeuristic order) {
+        strategies.add(new Strategy(name, engine, g -> order, StableId.of
+                (order)));
+        return this;
+    }
+
+    /**
+     * add a strategy whose order depends on the gnfa; in order to be
+     * stable (see {@link StableId}), order has to implement StableId
+     * @param name the name under which the strategy is reported
+     * @param engine conversion engine
+     * @param order computes the elimination order for a gnfa
+     * @return this
+     */
+    public Portfolio addPerGnfa(String name, ConversionEngine engine,
+                                Function<Gnfa, ? extends EliminationHeuristic>
+                                        order) {
+        strategies.add(new Strategy(name, engine, order, StableId.of(order)));
+        return this;
+    }
+
+    public List<Strategy> getStrategies() {
+        return Collections.unmodifiableList(strategies);
+    }
+
+    /**
+     * @return an identifier of the strategies or null if the order of one
+     * of them is not stable; the slack and the executor only decide which
+     * of the correct results is returned, hence they are not part of it
+     */
+    @Override
+    public String stableId() {
+        StringBuilder sb = new StringBuilder();
+        for (Strategy s : strategies) {
+            if (s.id == null)
+                return null;
+            sb.append(s.name).append('=').append(StableId.of(s.engine))
+                    .append('/').append(s.id).append(';');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the slack in nanoseconds
+     */
+    public long getSlack() {
+        return slack;
+    }
+
+    /**
+     * @param time the time the remaining strategies get after the first one
+     *             has finished
+     * @param unit unit of time
+     * @return this
+     */
+    public Portfolio setSlack(long time, TimeUnit unit) {
+        this.slack = unit.toNanos(time);
+        return this;
+    }
+
+    /**
+     * @param executor the executor on which the strategies run; if not set,
+     *                 the pool of the options or the common pool is used
+     * @return this
+     */
+    public Portfolio setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * run all strategies on copies of a
+     * @param a gnfa which is not modified except for the merging of trivial
+     *          cases
+     * @param opts conversion options; limits apply to every strategy
+     * @return the shortest expression and the outcome of every strategy
+     * @throws ConversionAbortedException if no strategy has succeeded
+     */
+    public PortfolioResult eliminate(Gnfa a, ConversionOptions opts) {
+        return run(a, opts, new ConversionBudget(opts));
+    }
+
+    Expr eliminateToExpr(Gnfa a, ConversionOptions opts, ConversionBudget
+            budget) {
+        return run(a, opts, budget).getExpr();
+    }
+
+    /**
+     * the state of one strategy
+     */
+    private static final class Run {
+        final Strategy strategy;
+        final CancellationToken token;
+        volatile long start = 0L;
+        volatile long end = 0L;
+        volatile Expr result = null;
+        volatile Throwable error = null;
+        // cancelled before it has been started
+        volatile boolean skipped = false;
+
+        Run(Strategy strategy, CancellationToken token) {
+            this.strategy = strategy;
+            this.token = token;
+        }
+    }
+
+    /**
+     * the error of the first strategy that has been started; the errors of
+     * the others are suppressed by it. Skipped strategies only count if all
+     * of them have been skipped.
+     */
+    private static RuntimeException getError(List<Run> runs) {
+        Throwable t = null;
+        for (Run r : runs) {
+            if (r.skipped || r.error == null)
+                continue;
+            Throwable e = unwrap(r.error);
+            if (t == null)
+                t = e;
+            else if (e != t)
+                t.addSuppressed(e);
+        }
+        if (t == null)
+            t = unwrap(runs.get(0).error);
+        if (t instanceof RuntimeException)
+            return (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        return new IllegalStateException(t);
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null)
+            return t.getCause();
+        return t;
+    }
+
+    private PortfolioResult run(Gnfa a, ConversionOptions opts,
+                                ConversionBudget budget) {
+        if (strategies.isEmpty())
+            throw new IllegalStateException("empty portfolio");
+
+        // done once for all copies
+        StateEliminator.INSTANCE.handleTrivialCases(a);
+
+        Executor ex = executor != null ? executor : opts.getPool() != null ?
+                opts.getPool() : ForkJoinPool.commonPool();
+
+        BlockingQueue<Run> done = new LinkedBlockingQueue<>();
+        List<Run> runs = new ArrayList<>(strategies.size());
+        long start = System.nanoTime();
+
+        for (Strategy s : strategies) {
+            Run r = new Run(s, new CancellationToken(opts
+                    .getCancellationToken()));
+            runs.add(r);
+            int states = a.vertexSet().size();
+            int edges = a.edgeSet().size();
+            CompletableFuture.runAsync(() -> {
+                // strategies that are still queued once the result has been
+                // chosen must not copy the gnfa
+                if (r.token.isCancelled()) {
+                    r.skipped = true;
+                    r.error = new ConversionAbortedException
+                            (ConversionAbortedException.Reason.CANCELLED, 0L,
+                                    states, edges, 0L, 0L);
+                    r.end = System.nanoTime();
+                    done.add(r);
+                    return;
+                }
+                r.start = System.nanoTime();
+                try {
+                    Gnfa g = a.copy();
+                    ConversionOptions c = opts.copy().setEngine(s.engine)
+                            .setOrder(s.order.apply(g)).setCancellationToken
+                                    (r.token).setListener(null)
+                            .setPortfolio(null);
+                    r.result = s.engine.eliminate(g, c, new ConversionBudget
+                            (c));
+                } catch (Throwable e) {
+                    r.error = e;
+                } finally {
+                    r.end = System.nanoTime();
+                    done.add(r);
+                }
+            }, ex);
+        }
+
+        int pending = runs.size();
+        long deadline = 0L;
+        try {
+            while (pending > 0) {
+                Run r = deadline == 0L ? done.take() : done.poll(deadline -
+                        System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (r == null)
+                    break;
+                pending--;
+                if (r.result != null && deadline == 0L) {
+                    deadline = System.nanoTime() + Math.max(slack, 1L);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            runs.forEach(r -> r.token.cancel());
+            throw new ConversionAbortedException(ConversionAbortedException
+                    .Reason.CANCELLED, 0L, a.vertexSet().size(), a.edgeSet()
+                    .size(), 0L, System.nanoTime() - start);
+        }
+
+        long now = System.nanoTime();
+        List<PortfolioResult.Outcome> outcomes = new ArrayList<>(runs.size());
+        Run best = null;
+        for (Run r : runs) {
+            r.token.cancel();
+            Expr e = r.result;
+            long end = r.end != 0L ? r.end : now;
+            long nanos = r.start != 0L ? end - r.start : 0L;
+            PortfolioResult.Status st = e != null ? PortfolioResult.Status
+                    .COMPLETED : r.end != 0L && !r.skipped ? PortfolioResult
+                    .Status.FAILED : PortfolioResult.Status.CANCELLED;
+            outcomes.add(new PortfolioResult.Outcome(r.strategy.name, st,
+                    nanos, e != null ? e.length() : -1L));
+            if (e != null && (best == null || e.length() < best.result
+                    .length())) {
+                best = r;
+            }
+        }
+
+        if (best == null)
+            throw getError(runs);
+
+        LOGGER.debug("strategy {} wins", best.strategy.name);
+        PortfolioResult res = new PortfolioResult(best.result, best.strategy
+                .name, outcomes);
+        EliminationListener l = budget.getListener();
+        if (l != null) {
+            l.onPortfolio(res);
+            l.onResult(best.result.length());
+        }
+        return res;
+    }
+}
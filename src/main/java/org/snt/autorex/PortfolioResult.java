@@ -0,0 +1,125 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.expr.Expr;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of running a {@link Portfolio}
+ */
+public class PortfolioResult {
+
+    public enum Status {
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * what happened to a single strategy
+     */
+    public static final class Outcome {
+        private final String name;
+        private final Status status;
+        private final long nanos;
+        private final long length;
+
+        Outcome(String name, Status status, long nanos, long length) {
+            this.name = name;
+            this.status = status;
+            this.nanos = nanos;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return time in nanoseconds from the start of the strategy until
+         * it has finished or was cancelled; 0 if it has not been started
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the length of the expression or -1 if the strategy has
+         * not completed
+         */
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + status + " " + nanos / 1000L + "us " + length;
+        }
+    }
+
+    private final Expr expr;
+    private final String winner;
+    private final List<Outcome> outcomes;
+
+    PortfolioResult(Expr expr, String winner, List<Outcome> outcomes) {
+        this.expr = expr;
+        this.winner = winner;
+        this.outcomes = Collections.unmodifiableList(outcomes);
+    }
+
+    Expr getExpr() {
+        return expr;
+    }
+
+    /**
+     * @return the shortest regular expression
+     */
+    public String getRegex() {
+        return expr.toString();
+    }
+
+    /**
+     * @return the name of the strategy that produced the result
+     */
+    public String getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return the outcomes of all strategies in the order of the portfolio
+     */
+    public List<Outcome> getOutcomes() {
+        return outcomes;
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.MinimizationOperations;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Optional preprocessing of the input automaton that is enabled by
+ * {@link ConversionOptions#setMinimize(boolean)}. Dead and unreachable
+ * states are removed and the automaton is minimized, which reduces the
+ * number of states that have to be eliminated afterwards. Note that
+ * non-deterministic automata are determinized first, which can increase
+ * their size.
+ *
+ * Small automata are minimized with the algorithm of Hopcroft. For large
+ * automata and if a pool is given, the partition is refined in rounds in
+ * the style of Moore: in every round, the signature (acceptance, class
+ * and the classes of the successors) of all states is computed in
+ * parallel, and states with equal signatures form the classes of the next
+ * round. The number of rounds can be as large as the number of states,
+ * e.g., for long chains, so the refinement gives up after
+ * {@link #MAX_ROUNDS} rounds and the automaton is minimized with the
+ * algorithm of Hopcroft instead.
+ */
+public enum Preprocessor {
+
+    INSTANCE;
+
+    final static Logger LOGGER = LoggerFactory.getLogger(Preprocessor.class);
+
+    /**
+     * automata with at least this number of states are refined in parallel
+     */
+    public static final int PARALLEL_STATES = 1 << 14;
+
+    /**
+     * maximum number of rounds of the parallel refinement
+     */
+    public static final int MAX_ROUNDS = 64;
+
+    /**
+     * minimize automaton a
+     * @param a dk.brics automaton which is not modified
+     * @param pool if set, large automata are refined in parallel on this
+     *             pool
+     * @return a minimal deterministic automaton without dead states that
+     * accepts the language of a
+     */
+    public Automaton minimize(Automaton a, ForkJoinPool pool) {
+        return minimize(a, pool, new ConversionBudget(new ConversionOptions()));
+    }
+
+    Automaton minimize(Automaton a, ForkJoinPool pool, ConversionBudget
+            budget) {
+        if (a.getSingleton() != null)
+            return a;
+
+        EliminationListener l = budget.getListener();
+        long t = l == null ? 0L : System.nanoTime();
+        int before = l == null ? 0 : a.getNumberOfStates();
+
+        Automaton b = a.clone();
+        b.removeDeadTransitions();
+        if (pool == null || b.getNumberOfStates() < PARALLEL_STATES) {
+            MinimizationOperations.minimizeHopcroft(b);
+            b.removeDeadTransitions();
+        } else {
+            b.determinize();
+            b.removeDeadTransitions();
+            Automaton r = refine(b, pool, budget);
+            if (r == null) {
+                MinimizationOperations.minimizeHopcroft(b);
+                b.removeDeadTransitions();
+            } else {
+                b = r;
+            }
+        }
+
+        if (l != null) {
+            l.onPreprocess(before, b.getNumberOfStates());
+            l.onPhase(EliminationListener.Phase.PREPROCESS, System.nanoTime()
+                    - t);
+        }
+        return b;
+    }
+
+    /**
+     * the signature of a state: acceptance, class and the merged ranges
+     * (min, max, successor class) of its transitions
+     */
+    private static final class Signature {
+        private final int [] v;
+        private final int hash;
+
+        Signature(int [] v) {
+            this.v = v;
+            this.hash = Arrays.hashCode(v);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature && Arrays.equals(v, ((Signature) o)
+                    .v);
+        }
+    }
+
+    /**
+     * Moore-style refinement of a deterministic automaton without dead
+     * states
+     * @return the minimal automaton or null if the partition did not
+     * become stable within {@link #MAX_ROUNDS} rounds
+     */
+    private static Automaton refine(Automaton a, ForkJoinPool pool,
+                                    ConversionBudget budget) {
+        final State [] states = a.getStates().toArray(new State[0]);
+        final int n = states.length;
+        Map<State, Integer> idx = new IdentityHashMap<>(n);
+        for (int i = 0; i < n; i++) {
+            idx.put(states[i], i);
+        }
+
+        // transitions sorted by min; successors as state indices
+        final char [][] ranges = new char[n][];
+        final int [][] succ = new int[n][];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            List<Transition> ts = states[i].getSortedTransitions(false);
+            ranges[i] = new char[ts.size() * 2];
+            succ[i] = new int[ts.size()];
+            for (int j = 0; j < ts.size(); j++) {
+                Transition t = ts.get(j);
+                ranges[i][2 * j] = t.getMin();
+                ranges[i][2 * j + 1] = t.getMax();
+                succ[i][j] = idx.get(t.getDest());
+            }
+            m += ts.size();
+        }
+
+        int [] cls = new int[n];
+        for (int i = 0; i < n; i++) {
+            cls[i] = states[i].isAccept() ? 1 : 0;
+        }
+        int classes = -1;
+        Signature [] sigs = new Signature[n];
+
+        for (int round = 0; ; round++) {
+            if (round == MAX_ROUNDS) {
+                LOGGER.debug("{} classes of {} states after {} rounds; " +
+                        "falling back to Hopcroft", classes, n, round);
+                return null;
+            }
+            final int [] c = cls;
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(i ->
+                    sigs[i] = getSignature(c[i], ranges[i], succ[i], c)))
+                    .join();
+
+            Map<Signature, Integer> ids = new ConcurrentHashMap<>();
+            AtomicInteger next = new AtomicInteger();
+            int [] ncls = new int[n];
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(i ->
+                    ncls[i] = ids.computeIfAbsent(sigs[i], k -> next
+                            .getAndIncrement()))).join();
+
+            budget.check(n, m);
+            cls = ncls;
+            if (next.get() == classes)
+                break;
+            classes = next.get();
+        }
+
+        // one state per class, built from a representative
+        State [] nstates = new State[classes];
+        int [] rep = new int[classes];
+        Arrays.fill(rep, -1);
+        for (int i = 0; i < n; i++) {
+            if (rep[cls[i]] == -1) {
+                rep[cls[i]] = i;
+                nstates[cls[i]] = new State();
+            }
+        }
+        for (int k = 0; k < classes; k++) {
+            int r = rep[k];
+            int [] v = getSignature(k, ranges[r], succ[r], cls).v;
+            State s = nstates[k];
+            s.setAccept(states[r].isAccept());
+            for (int j = 2; j < v.length; j += 3) {
+                s.addTransition(new Transition((char) v[j], (char) v[j + 1],
+                        nstates[v[j + 2]]));
+            }
+        }
+
+        Automaton ret = new Automaton();
+        ret.setInitialState(nstates[cls[idx.get(a.getInitialState())]]);
+        ret.setDeterministic(true);
+        LOGGER.debug("refined {} states into {} classes", n, classes);
+        return ret;
+    }
+
+    /**
+     * compute the signature of a state; ranges that are adjacent and lead
+     * to the same class are merged so that the signature does not depend
+     * on how the transitions are split
+     */
+    private static Signature getSignature(int own, char [] ranges, int []
+            succ, int [] cls) {
+        List<int []> merged = new ArrayList<>(succ.length);
+        for (int j = 0; j < succ.length; j++) {
+            int min = ranges[2 * j];
+            int max = ranges[2 * j + 1];
+            int dst = cls[succ[j]];
+            if (!merged.isEmpty()) {
+                int [] last = merged.get(merged.size() - 1);
+                if (last[2] == dst && last[1] + 1 == min) {
+                    last[1] = max;
+                    continue;
+                }
+            }
+            merged.add(new int[]{min, max, dst});
+        }
+        int [] v = new int[2 + 3 * merged.size()];
+        v[0] = own;
+        v[1] = merged.size();
+        for (int j = 0; j < merged.size(); j++) {
+            System.arraycopy(merged.get(j), 0, v, 2 + 3 * j, 3);
+        }
+        return new Signature(v);
+    }
+}
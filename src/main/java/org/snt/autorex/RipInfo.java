@@ -0,0 +1,118 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+/**
+ * Neighbourhood information about a state that is a candidate for
+ * elimination. An instance is filled in by the eliminator and handed to an
+ * {@link EliminationHeuristic} in order to compute the cost of ripping the
+ * state out.
+ */
+public final class RipInfo {
+
+    private int state;
+    private int in;
+    private int out;
+    private boolean loop;
+    private long inLength;
+    private long outLength;
+    private long loopLength;
+
+    void reset(int state) {
+        this.state = state;
+        in = 0;
+        out = 0;
+        loop = false;
+        inLength = 0;
+        outLength = 0;
+        loopLength = 0;
+    }
+
+    void addIncoming(long length) {
+        in++;
+        inLength += length;
+    }
+
+    void addOutgoing(long length) {
+        out++;
+        outLength += length;
+    }
+
+    void setLoop(long length) {
+        loop = true;
+        loopLength = length;
+    }
+
+    /**
+     * @return the id of the state
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * @return number of incoming transitions (without the self-loop)
+     */
+    public int getIn() {
+        return in;
+    }
+
+    /**
+     * @return number of outgoing transitions (without the self-loop)
+     */
+    public int getOut() {
+        return out;
+    }
+
+    /**
+     * @return true if the state has a self-loop
+     */
+    public boolean hasLoop() {
+        return loop;
+    }
+
+    /**
+     * @return summed label length of all incoming transitions
+     */
+    public long getInLength() {
+        return inLength;
+    }
+
+    /**
+     * @return summed label length of all outgoing transitions
+     */
+    public long getOutLength() {
+        return outLength;
+    }
+
+    /**
+     * @return label length of the self-loop or 0 if there is none
+     */
+    public long getLoopLength() {
+        return loopLength;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A priority queue of states to be ripped out. Costs are updated lazily:
+ * re-scoring a state pushes a new entry and outdated entries are skipped
+ * when they reach the head of the queue.
+ */
+class RipQueue {
+
+    private static class Entry implements Comparable<Entry> {
+        private final State state;
+        private final long cost;
+        private final long seq;
+
+        Entry(State state, long cost, long seq) {
+            this.state = state;
+            this.cost = cost;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int c = Long.compare(cost, o.cost);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<State, Long> current = new HashMap<>();
+    private long seq = 0;
+
+    /**
+     * insert state s or update its cost
+     * @param s state
+     * @param cost the new cost of s
+     */
+    void update(State s, long cost) {
+        Long old = current.put(s, cost);
+        if (old == null || old != cost) {
+            queue.add(new Entry(s, cost, seq++));
+        }
+    }
+
+    /**
+     * remove s from the queue
+     * @param s state
+     */
+    void remove(State s) {
+        current.remove(s);
+    }
+
+    /**
+     * @return the cheapest state or null if the queue is empty
+     */
+    State poll() {
+        Entry e;
+        while ((e = queue.poll()) != null) {
+            Long cost = current.get(e.state);
+            if (cost != null && cost == e.cost) {
+                current.remove(e.state);
+                return e.state;
+            }
+        }
+        return null;
+    }
+}
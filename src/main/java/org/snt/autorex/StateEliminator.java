@@ -26,16 +26,27 @@
 
 package org.snt.autorex;
 
+import org.jgrapht.alg.KosarajuStrongConnectivityInspector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.IntGnfa;
 import org.snt.autorex.autograph.State;
 import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntList;
 import org.snt.autorex.utils.Tuple;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public enum StateEliminator {
@@ -45,17 +56,34 @@ public enum StateEliminator {
     final static Logger LOGGER = LoggerFactory.getLogger(StateEliminator.class);
 
     /**
-     * get qrip, i.e. the state to rip out
+     * compute the elimination cost of state s
      * @param a gnfa to analyze
-     * @return
+     * @param s the state to analyze
+     * @param h the heuristic to apply
+     * @param info buffer for the neighbourhood information of s
+     * @return cost of ripping s out of a
      */
-    private State getQrip(Gnfa a) {
-        try {
-            return a.vertexSet().stream().filter(s -> s.getKind() != State.Kind
-                    .START && s.getKind() != State.Kind.ACCEPT).findFirst().get();
-        } catch (NoSuchElementException e) {
-            return null;
+    private long getCost(Gnfa a, State s, EliminationHeuristic h, RipInfo
+            info) {
+        info.reset(s.getId());
+        for (Transition t : a.incomingEdgesOf(s)) {
+            if (t.getSource().equals(s)) {
+                info.setLoop(t.getLabel().length());
+            } else {
+                info.addIncoming(t.getLabel().length());
+            }
+        }
+        for (Transition t : a.outgoingEdgesOf(s)) {
+            if (!t.getTarget().equals(s)) {
+                info.addOutgoing(t.getLabel().length());
+            }
         }
+        return h.cost(info);
+    }
+
+    private static boolean isRipable(State s) {
+        return s.getKind() != State.Kind.START && s.getKind() != State.Kind
+                .ACCEPT;
     }
 
     /**
@@ -63,13 +91,186 @@ public enum StateEliminator {
      * in Micheal Sipser et.al, Introduction to the Theory of Computation
      * @param a gnfa
      * @return the corresponding string for a regular expression.
+     * @throws IllegalArgumentException if a accepts the empty language
      */
     public String eliminate(Gnfa a) {
+        return eliminate(a, new ConversionOptions());
+    }
+
+    /**
+     * State elimination procedure based on the standard algorithm presented
+     * in Micheal Sipser et.al, Introduction to the Theory of Computation
+     * @param a gnfa
+     * @param h the heuristic that determines the elimination order
+     * @return the corresponding string for a regular expression.
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a, EliminationHeuristic h) {
+        return eliminate(a, new ConversionOptions().setOrder(h));
+    }
+
+    /**
+     * State elimination procedure based on the standard algorithm presented
+     * in Micheal Sipser et.al, Introduction to the Theory of Computation
+     * @param a gnfa
+     * @param opts conversion options
+     * @return the corresponding string for a regular expression.
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a, ConversionOptions opts) {
+        return eliminate(a, opts, new ConversionBudget(opts));
+    }
+
+    String eliminate(Gnfa a, ConversionOptions opts, ConversionBudget
+            budget) {
+        Expr e = eliminateToExpr(a, opts, budget);
+        EliminationListener l = budget.getListener();
+        if (l == null)
+            return e.toString();
+        long t = System.nanoTime();
+        String rex = e.toString();
+        l.onPhase(EliminationListener.Phase.RENDER, System.nanoTime() - t);
+        return rex;
+    }
+
+    /**
+     * like eliminate but returns the expression itself so that callers can
+     * render it into a stream
+     */
+    Expr eliminateToExpr(Gnfa a, ConversionOptions opts, ConversionBudget
+            budget) {
+        EliminationListener l = budget.getListener();
+        if (l == null) {
+            handleTrivialCases(a);
+            if (opts.getPool() != null) {
+                ripComponents(a, opts.getOrder(), opts.getPool(), budget);
+            }
+            rip(a, opts.getOrder(), StateEliminator::isRipable, budget);
+            return getResult(a);
+        }
+        l.onStart(a.vertexSet().size(), a.edgeSet().size());
+        long t = System.nanoTime();
         handleTrivialCases(a);
+        l.onPhase(EliminationListener.Phase.TRIVIAL, System.nanoTime() - t);
+        t = System.nanoTime();
+        if (opts.getPool() != null) {
+            ripComponents(a, opts.getOrder(), opts.getPool(), budget);
+        }
+        rip(a, opts.getOrder(), StateEliminator::isRipable, budget);
+        l.onPhase(EliminationListener.Phase.RIP, System.nanoTime() - t);
+        Expr e = getResult(a);
+        l.onResult(e.length());
+        return e;
+    }
+
+    /**
+     * State elimination that first rips out the inner states of every
+     * strongly connected component in parallel. A state is inner if all
+     * its neighbours belong to the same component, so that the components
+     * can be processed independently on copies of their subgraphs. The
+     * resulting summary transitions are written back and the remaining
+     * (condensed) graph is processed sequentially.
+     * @param a gnfa
+     * @param h the heuristic that determines the elimination order
+     * @param pool the pool on which the components are processed
+     * @return the corresponding string for a regular expression.
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(Gnfa a, EliminationHeuristic h, ForkJoinPool
+            pool) {
+        return eliminate(a, new ConversionOptions().setOrder(h).setPool
+                (pool));
+    }
+
+    /**
+     * rip out the inner states of all strongly connected components in
+     * parallel and write the resulting summary transitions back to a
+     * @param a gnfa
+     * @param h the heuristic that determines the elimination order
+     * @param pool the pool on which the components are processed
+     * @param budget resource limits
+     */
+    private void ripComponents(Gnfa a, EliminationHeuristic h, ForkJoinPool
+            pool, ConversionBudget budget) {
+        List<Set<State>> sccs = new KosarajuStrongConnectivityInspector<>
+                (a).stronglyConnectedSets();
+
+        List<Tuple<Set<State>, ForkJoinTask<Gnfa>>> tasks = new
+                ArrayList<>();
+
+        for (Set<State> scc : sccs) {
+            Set<State> inner = scc.stream().filter(s -> isInner(a, scc, s))
+                    .collect(Collectors.toSet());
+            if (inner.isEmpty())
+                continue;
+            Gnfa sub = a.subgraph(scc);
+            tasks.add(new Tuple<>(inner, pool.submit(() -> {
+                rip(sub, h, inner::contains, budget);
+                return sub;
+            })));
+        }
+
+        for (Tuple<Set<State>, ForkJoinTask<Gnfa>> t : tasks) {
+            Gnfa sub = t.getSecond().join();
+            t.getFirst().forEach(a::removeVertex);
+            for (Transition e : sub.edgeSet()) {
+                Transition old = a.getEdge(e.getSource(), e.getTarget());
+                if (old != null) {
+                    old.setLabel(e.getLabel());
+                } else {
+                    a.addEdge(e);
+                }
+            }
+        }
+    }
+
+    private static boolean isInner(Gnfa a, Set<State> scc, State s) {
+        if (!isRipable(s))
+            return false;
+        for (Transition t : a.incomingEdgesOf(s)) {
+            if (!scc.contains(t.getSource()))
+                return false;
+        }
+        for (Transition t : a.outgoingEdgesOf(s)) {
+            if (!scc.contains(t.getTarget()))
+                return false;
+        }
+        return true;
+    }
+
+    private Expr getResult(Gnfa a) {
+        assert a.edgeSet().size() <= 1;
+        if (a.edgeSet().isEmpty()) {
+            throw new IllegalArgumentException("the automaton accepts the " +
+                    "empty language");
+        }
+        return a.edgeSet().iterator().next().getLabel();
+    }
 
-        while (a.vertexSet().size() > 2) {
+    /**
+     * rip out states from a
+     * @param a gnfa
+     * @param h the heuristic that determines the elimination order
+     * @param candidate the states to be ripped out
+     * @param budget resource limits
+     */
+    private void rip(Gnfa a, EliminationHeuristic h, Predicate<State>
+            candidate, ConversionBudget budget) {
+        RipInfo info = new RipInfo();
+        RipQueue queue = new RipQueue();
+        EliminationListener l = budget.getListener();
+
+        for (State s : a.vertexSet()) {
+            if (candidate.test(s)) {
+                queue.update(s, getCost(a, s, h, info));
+            }
+        }
+
+        State next;
+        while ((next = queue.poll()) != null) {
 
-            final State qrip = getQrip(a);
+            final State qrip = next;
 
             Set<State> in = a.getConnectedInStates(qrip).stream()
                     .filter(v -> v.getKind() != State.Kind.ACCEPT)
@@ -81,42 +282,20 @@ public enum StateEliminator {
                     .filter(v -> !v.equals(qrip)).collect
                             (Collectors.toSet());
 
-
             Set<Transition> trans = new HashSet<>();
+            long maxLen = 0L;
 
             for(State qi : in) {
                 for (State qj : out) {
-                    StringBuilder lbl = new StringBuilder();
-
-                    if (a.containsEdge(qi, qrip) && a.getEdge(qi, qrip).getLabel().length() > 0) {
-                        lbl.append("(");
-                        lbl.append(a.getEdge(qi, qrip).getLabel());
-                        lbl.append(")");
-                    }
+                    Expr lbl = getRipLabel(a.getExprFactory(),
+                            getLabel(a, qi, qrip),
+                            getLabel(a, qrip, qrip),
+                            getLabel(a, qrip, qj),
+                            getLabel(a, qi, qj));
 
-                    // make one loop
-                    if (a.containsEdge(qrip, qrip) && a.getEdge(qrip, qrip)
-                            .getLabel().length() > 0) {
-                        lbl.append("(");
-                        lbl.append(a.getEdge(qrip, qrip).getLabel());
-                        lbl.append(")*");
-                    }
-
-                    if (a.containsEdge(qrip, qj) && a.getEdge(qrip, qj)
-                            .getLabel().length() > 0) {
-                        lbl.append("(");
-                        lbl.append(a.getEdge(qrip, qj).getLabel());
-                        lbl.append(")");
-                    }
-
-                    if (a.containsEdge(qi, qj) && a.getEdge(qi,qj).getLabel()
-                            .length() > 0) {
-                        if (lbl.length() > 0)
-                            lbl.append("|");
-                        lbl.append(a.getEdge(qi,qj).getLabel());
-                    }
-
-                    if (lbl.length() > 0) {
+                    if (lbl != null) {
+                        budget.checkLabel(lbl.length());
+                        maxLen = Math.max(maxLen, lbl.length());
                         trans.add(new Transition(qi, qj, Transition.Kind.MATCH, lbl));
                     }
                 }
@@ -131,47 +310,281 @@ public enum StateEliminator {
                     a.addEdge(t);
                 }
             });
+
+            budget.step(a.vertexSet().size(), a.edgeSet().size());
+            if (l != null) {
+                l.onRip(trans.size(), a.vertexSet().size(), a.edgeSet()
+                        .size(), maxLen);
+            }
+
+            // only the neighbours of qrip have changed
+            for (State s : in) {
+                if (candidate.test(s)) {
+                    queue.update(s, getCost(a, s, h, info));
+                }
+            }
+            for (State s : out) {
+                if (candidate.test(s)) {
+                    queue.update(s, getCost(a, s, h, info));
+                }
+            }
+        }
+    }
+
+    /**
+     * State elimination on the integer representation of a gnfa
+     * @param a integer gnfa
+     * @param h the heuristic that determines the elimination order
+     * @return the corresponding string for a regular expression.
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(IntGnfa a, EliminationHeuristic h) {
+        return eliminate(a, new ConversionOptions().setOrder(h));
+    }
+
+    /**
+     * State elimination on the integer representation of a gnfa
+     * @param a integer gnfa
+     * @param opts conversion options
+     * @return the corresponding string for a regular expression.
+     * @throws ConversionAbortedException if a limit set in opts is exceeded
+     * @throws IllegalArgumentException if a accepts the empty language
+     */
+    public String eliminate(IntGnfa a, ConversionOptions opts) {
+        return eliminate(a, opts.getOrder(), new ConversionBudget(opts));
+    }
+
+    String eliminate(IntGnfa a, EliminationHeuristic h, ConversionBudget
+            budget) {
+
+        RipInfo info = new RipInfo();
+        IntRipQueue queue = new IntRipQueue(a.size());
+        IntList in = new IntList();
+        IntList out = new IntList();
+        IntList nin = new IntList();
+        IntList nout = new IntList();
+        EliminationListener l = budget.getListener();
+        long t = 0L;
+        if (l != null) {
+            l.onStart(a.getLiveCount(), a.getEdgeCount());
+            t = System.nanoTime();
+        }
+
+        for (int s = 0; s < a.size(); s++) {
+            if (isRipable(a, s)) {
+                queue.update(s, getCost(a, s, h, info, nin, nout));
+            }
+        }
+
+        while (a.getLiveCount() > 2) {
+            final int qrip = queue.poll();
+
+            in.clear();
+            out.clear();
+            a.getIncoming(qrip, in);
+            a.getOutgoing(qrip, out);
+
+            Expr loop = a.getLabel(qrip, qrip);
+            int created = 0;
+            long maxLen = 0L;
+
+            for (int i = 0; i < in.size(); i++) {
+                int qi = in.get(i);
+                if (qi == a.getAccept())
+                    continue;
+                Expr lqi = a.getLabel(qi, qrip);
+                for (int j = 0; j < out.size(); j++) {
+                    int qj = out.get(j);
+                    if (qj == a.getStart())
+                        continue;
+
+                    Expr lbl = getRipLabel(a.getExprFactory(), lqi, loop, a
+                            .getLabel(qrip, qj), a.getLabel(qi, qj));
+
+                    if (lbl != null) {
+                        budget.checkLabel(lbl.length());
+                        maxLen = Math.max(maxLen, lbl.length());
+                        created++;
+                        a.setLabel(qi, qj, lbl);
+                    }
+                }
+            }
+
+            a.removeState(qrip);
+            budget.step(a.getLiveCount(), a.getEdgeCount());
+            if (l != null) {
+                l.onRip(created, a.getLiveCount(), a.getEdgeCount(), maxLen);
+            }
+
+            // only the neighbours of qrip have changed
+            for (int i = 0; i < in.size(); i++) {
+                if (isRipable(a, in.get(i))) {
+                    queue.update(in.get(i), getCost(a, in.get(i), h, info,
+                            nin, nout));
+                }
+            }
+            for (int j = 0; j < out.size(); j++) {
+                if (isRipable(a, out.get(j))) {
+                    queue.update(out.get(j), getCost(a, out.get(j), h, info,
+                            nin, nout));
+                }
+            }
         }
 
-        assert a.edgeSet().size() == 1;
-        return postProcess(a.edgeSet().iterator().next().getLabel().toString());
+        Expr lbl = a.getLabel(a.getStart(), a.getAccept());
+        if (lbl == null) {
+            throw new IllegalArgumentException("the automaton accepts the " +
+                    "empty language");
+        }
+        if (l == null)
+            return lbl.toString();
+        l.onPhase(EliminationListener.Phase.RIP, System.nanoTime() - t);
+        l.onResult(lbl.length());
+        t = System.nanoTime();
+        String rex = lbl.toString();
+        l.onPhase(EliminationListener.Phase.RENDER, System.nanoTime() - t);
+        return rex;
+    }
+
+    private static boolean isRipable(IntGnfa a, int s) {
+        return a.isAlive(s) && s != a.getStart() && s != a.getAccept();
+    }
+
+    private long getCost(IntGnfa a, int s, EliminationHeuristic h, RipInfo
+            info, IntList in, IntList out) {
+        in.clear();
+        out.clear();
+        a.getIncoming(s, in);
+        a.getOutgoing(s, out);
+        info.reset(s);
+        for (int i = 0; i < in.size(); i++) {
+            info.addIncoming(a.getLabel(in.get(i), s).length());
+        }
+        for (int i = 0; i < out.size(); i++) {
+            info.addOutgoing(a.getLabel(s, out.get(i)).length());
+        }
+        Expr loop = a.getLabel(s, s);
+        if (loop != null) {
+            info.setLoop(loop.length());
+        }
+        return h.cost(info);
     }
 
-    private String postProcess(String s) {
-        // just a bit of cleanup to remove redundant empty transitions
-        return s.replaceAll("\\)\\(\\.\\{0(,0)?\\}\\)", ")")
-                .replaceAll("\\)\\.\\{0(,0)?\\}", ")")
-                .replaceAll("\\(\\.\\{0(,0)?\\}\\)\\(", "(")
-                .replaceAll("\\.\\{0(,0)?\\}\\(", "(")
-                .replaceAll("\\*\\(\\.\\{0(,0)?\\}\\)", "*");
+    private static Expr getLabel(Gnfa a, State src, State dst) {
+        Transition t = a.getEdge(src, dst);
+        return t == null ? null : t.getLabel();
     }
 
-    private Tuple<Transition,Transition> getMergeTrans(Gnfa a) {
-        try {
-            Transition nxt = a.edgeSet().stream().filter(
-                    t -> a.outDegreeOf(t.getSource()) == 1 &&
-                            a.inDegreeOf(t.getTarget()) == 1 &&
-                            a.outDegreeOf(t.getTarget()) == 1
-            ).filter(t -> t.getKind() == Transition.Kind.MATCH).findFirst()
-                    .get();
+    /**
+     * compute the label of the transition qi -> qj that replaces the path
+     * qi -> qrip -> qj; absent transitions are denoted by null
+     * @param exprs expression factory
+     * @param qiqrip label of qi -> qrip
+     * @param loop label of the self-loop of qrip
+     * @param qripqj label of qrip -> qj
+     * @param qiqj label of qi -> qj
+     * @return the new label or null
+     */
+    static Expr getRipLabel(ExprFactory exprs, Expr qiqrip, Expr
+            loop, Expr qripqj, Expr qiqj) {
+        Expr lbl = qiqrip;
 
-            return new Tuple(nxt, a.outgoingEdgesOf(nxt.getTarget()).iterator
-                    ().next());
-        } catch (NoSuchElementException e) {
-            return null;
+        // make one loop
+        if (loop != null) {
+            lbl = lbl == null ? exprs.star(loop) : exprs.concat(lbl, exprs
+                    .star(loop));
         }
+
+        if (qripqj != null) {
+            lbl = lbl == null ? qripqj : exprs.concat(lbl, qripqj);
+        }
+
+        if (qiqj != null) {
+            lbl = lbl == null ? qiqj : exprs.union(lbl, qiqj);
+        }
+        return lbl;
+    }
+
+    /**
+     * check whether s is an inner node of a chain, i.e., a state with
+     * exactly one predecessor and one successor that are not s itself
+     * @param a gnfa
+     * @param s state to check
+     * @return true if s can be spliced out
+     */
+    private static boolean isChainState(Gnfa a, State s) {
+        if (!isRipable(s) || a.inDegreeOf(s) != 1 || a.outDegreeOf(s) != 1)
+            return false;
+        return !a.incomingEdgesOf(s).iterator().next().getSource().equals(s);
     }
 
+    private static Transition getIncoming(Gnfa a, State s) {
+        return a.incomingEdgesOf(s).iterator().next();
+    }
+
+    private static Transition getOutgoing(Gnfa a, State s) {
+        return a.outgoingEdgesOf(s).iterator().next();
+    }
+
+    /**
+     * splice out maximal chains of states that have exactly one incoming
+     * and one outgoing transition; every chain is replaced by a single
+     * transition at once and only the chain endpoints are re-examined
+     * afterwards
+     * @param a gnfa
+     */
     public void handleTrivialCases(Gnfa a) {
-        Tuple<Transition, Transition> t;
-        while((t = getMergeTrans(a)) != null) {
-            Transition nt = new Transition(t.getFirst().getSource(), t
-                    .getSecond().getTarget(), Transition.Kind.MATCH, t
-                    .getFirst().getLabel().append(t.getSecond().getLabel()));
-            a.addEdge(nt);
+        ExprFactory exprs = a.getExprFactory();
+        Deque<State> work = new ArrayDeque<>();
+
+        for (State s : a.vertexSet()) {
+            if (isChainState(a, s)) {
+                work.add(s);
+            }
+        }
 
+        List<State> chain = new ArrayList<>();
+
+        while (!work.isEmpty()) {
+            State s = work.poll();
+
+            if (!a.containsVertex(s) || !isChainState(a, s))
+                continue;
+
+            // walk back to the first state of the chain
+            State first = s;
+            State head = getIncoming(a, first).getSource();
+            while (isChainState(a, head) && !head.equals(s)) {
+                first = head;
+                head = getIncoming(a, first).getSource();
+            }
+
+            // an isolated cycle of chain states -- leave it to the rip loop
+            if (head.equals(s))
+                continue;
+
+            chain.clear();
+            Expr lbl = getIncoming(a, first).getLabel();
+            State tail = first;
+            do {
+                chain.add(tail);
+                Transition out = getOutgoing(a, tail);
+                lbl = exprs.concat(lbl, out.getLabel());
+                tail = out.getTarget();
+            } while (isChainState(a, tail) && !tail.equals(first));
+
+            chain.forEach(a::removeVertex);
+
+            Transition t = a.getEdge(head, tail);
+            if (t != null) {
+                t.setLabel(exprs.union(t.getLabel(), lbl));
+            } else {
+                a.addEdge(new Transition(head, tail, Transition.Kind.MATCH,
+                        lbl));
+            }
 
-            a.removeVertex(t.getFirst().getTarget());
+            work.add(head);
+            work.add(tail);
         }
     }
 }
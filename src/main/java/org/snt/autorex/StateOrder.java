@@ -0,0 +1,123 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.State;
+import org.snt.autorex.autograph.Transition;
+import org.snt.autorex.cache.StableId;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Elimination orders that do not depend on the neighbourhood of a state
+ * but on its identity
+ */
+public final class StateOrder implements EliminationHeuristic {
+
+    // rank of every state by id
+    private final long [] rank;
+
+    private StateOrder(long [] rank) {
+        this.rank = rank;
+    }
+
+    @Override
+    public long cost(RipInfo info) {
+        int s = info.getState();
+        return s < rank.length ? rank[s] : Long.MAX_VALUE;
+    }
+
+    /**
+     * eliminate the states of g in reverse topological order, i.e., in the
+     * order in which a depth-first search from the start state finishes
+     * them; for cyclic graphs, the back edges of the search are ignored
+     * @param g the gnfa whose states are ordered
+     * @return the order
+     */
+    public static StateOrder reverseTopological(Gnfa g) {
+        long [] rank = new long[g.getStateIdBound()];
+        Arrays.fill(rank, Long.MAX_VALUE);
+        boolean [] seen = new boolean[rank.length];
+        long next = 0L;
+
+        Deque<State> states = new ArrayDeque<>();
+        Deque<Iterator<Transition>> succ = new ArrayDeque<>();
+        states.push(g.getStart());
+        succ.push(g.outgoingEdgesOf(g.getStart()).iterator());
+        seen[g.getStart().getId()] = true;
+
+        while (!states.isEmpty()) {
+            Iterator<Transition> it = succ.peek();
+            if (it.hasNext()) {
+                State dst = it.next().getTarget();
+                if (!seen[dst.getId()]) {
+                    seen[dst.getId()] = true;
+                    states.push(dst);
+                    succ.push(g.outgoingEdgesOf(dst).iterator());
+                }
+            } else {
+                rank[states.pop().getId()] = next++;
+                succ.pop();
+            }
+        }
+        return new StateOrder(rank);
+    }
+
+    /**
+     * eliminate the states in a pseudo-random order
+     * @param seed the seed that determines the order
+     * @return the order
+     */
+    public static EliminationHeuristic random(long seed) {
+        return new Random(seed);
+    }
+
+    private static final class Random implements EliminationHeuristic,
+            StableId {
+        private final long seed;
+
+        Random(long seed) {
+            this.seed = seed;
+        }
+
+        @Override
+        public long cost(RipInfo info) {
+            long h = (seed ^ info.getState()) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+            return h & Long.MAX_VALUE;
+        }
+
+        @Override
+        public String stableId() {
+            return Long.toString(seed);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.autograph;
+
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntList;
+
+/**
+ * integer gnfa backed by an adjacency matrix
+ */
+class DenseIntGnfa extends IntGnfa {
+
+    private final Expr[] matrix;
+
+    DenseIntGnfa(int size, int start, int accept,
+                 ExprFactory exprs) {
+        super(size, start, accept, exprs);
+        this.matrix = new Expr[size * size];
+    }
+
+    @Override
+    public Expr getLabel(int src, int dst) {
+        return matrix[src * size + dst];
+    }
+
+    @Override
+    public void setLabel(int src, int dst, Expr lbl) {
+        int p = src * size + dst;
+        if (matrix[p] == null && lbl != null) {
+            edges++;
+        } else if (matrix[p] != null && lbl == null) {
+            edges--;
+        }
+        matrix[p] = lbl;
+    }
+
+    @Override
+    public void getIncoming(int s, IntList out) {
+        for (int i = 0, p = s; i < size; i++, p += size) {
+            if (i != s && matrix[p] != null) {
+                out.add(i);
+            }
+        }
+    }
+
+    @Override
+    public void getOutgoing(int s, IntList out) {
+        for (int j = 0, p = s * size; j < size; j++, p++) {
+            if (j != s && matrix[p] != null) {
+                out.add(j);
+            }
+        }
+    }
+
+    @Override
+    protected void removeTransitionsOf(int s) {
+        for (int k = 0; k < size; k++) {
+            setLabel(s, k, null);
+            setLabel(k, s, null);
+        }
+    }
+}
@@ -28,6 +28,7 @@ package org.snt.autorex.autograph;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snt.autorex.expr.ExprFactory;
 
 import java.util.Collection;
 import java.util.Set;
@@ -43,6 +44,47 @@ public class Gnfa extends AbstractGraph implements Cloneable {
     private State start;
     private State end;
 
+    private final ExprFactory exprs;
+
+    private int nextId = 0;
+
+    public Gnfa() {
+        this(new ExprFactory());
+    }
+
+    /**
+     * create an empty gnfa
+     * @param exprs the factory for the transition labels
+     */
+    public Gnfa(ExprFactory exprs) {
+        this.exprs = exprs;
+    }
+
+    /**
+     * @return the factory that is used to build the transition labels
+     */
+    public ExprFactory getExprFactory() {
+        return exprs;
+    }
+
+    /**
+     * create a new state whose id is unique within this gnfa; the state
+     * is not added to the graph
+     * @param kind the kind of the state
+     * @return a fresh state
+     */
+    public State createState(State.Kind kind) {
+        return new State(nextId++, kind);
+    }
+
+    /**
+     * @return an upper bound (exclusive) of the ids of all states of this
+     * gnfa
+     */
+    public int getStateIdBound() {
+        return nextId;
+    }
+
     public Set<Transition> getIncomingEdgesOfKind(State n, Transition.Kind k) {
         return super.incomingEdgesOf(n).stream().filter(e -> e.getKind() ==
                 k).collect(Collectors.toSet());
@@ -160,12 +202,22 @@ public class Gnfa extends AbstractGraph implements Cloneable {
 
 
     /**
-     * get a subgraph
+     * @return a copy of this gnfa whose transitions can be modified
+     * independently of this gnfa
+     */
+    public Gnfa copy() {
+        return subgraph(vertexSet());
+    }
+
+    /**
+     * get a subgraph; the transitions are copied so that the subgraph can
+     * be modified independently of this gnfa
      * @param vertices set of vertices
      * @return the subgraph that connects all vertices in the given set
      */
-    private Gnfa subgraph(Collection<State> vertices) {
-        Gnfa g = new Gnfa();
+    public Gnfa subgraph(Collection<State> vertices) {
+        Gnfa g = new Gnfa(exprs);
+        g.nextId = nextId;
 
         for (State n : vertices) {
             g.addVertex(n);
@@ -174,7 +226,7 @@ public class Gnfa extends AbstractGraph implements Cloneable {
         for (State n : vertices) {
             for (Transition e : outgoingEdgesOf(n)) {
                 if (vertices.contains(e.getTarget())) {
-                    g.addEdge(e);
+                    g.addEdge(e.clone());
                 }
             }
         }
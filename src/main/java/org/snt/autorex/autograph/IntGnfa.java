@@ -0,0 +1,198 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.autograph;
+
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A generalized non-deterministic finite automaton whose states are dense
+ * integers. In contrast to {@link Gnfa}, transitions are kept in primitive
+ * adjacency structures so that state elimination does not have to go
+ * through the object maps of JGraphT. There is at most one transition per
+ * (source, target) pair.
+ */
+public abstract class IntGnfa {
+
+    /**
+     * graphs with up to this number of states use an adjacency matrix,
+     * larger graphs use adjacency maps
+     */
+    public static final int DENSE_LIMIT = 512;
+
+    protected final int size;
+    private final int start;
+    private final int accept;
+    private final boolean[] alive;
+    private int live;
+    protected int edges;
+    private final ExprFactory exprs;
+
+    protected IntGnfa(int size, int start, int accept, ExprFactory exprs) {
+        this.size = size;
+        this.exprs = exprs;
+        this.start = start;
+        this.accept = accept;
+        this.alive = new boolean[size];
+        Arrays.fill(alive, true);
+        this.live = size;
+    }
+
+    /**
+     * create an empty graph with the given number of states; the storage
+     * layout is chosen based on the size
+     * @param size number of states
+     * @param start index of the start state
+     * @param accept index of the accepting state
+     * @param exprs the factory for the transition labels
+     * @return an empty graph
+     */
+    public static IntGnfa create(int size, int start, int accept,
+                                 ExprFactory exprs) {
+        if (size <= DENSE_LIMIT) {
+            return new DenseIntGnfa(size, start, accept, exprs);
+        }
+        return new SparseIntGnfa(size, start, accept, exprs);
+    }
+
+    /**
+     * translate a gnfa into its integer representation
+     * @param g the gnfa to translate
+     * @return integer representation of g
+     */
+    public static IntGnfa fromGnfa(Gnfa g) {
+        Map<State, Integer> idx = new HashMap<>();
+        for (State s : g.vertexSet()) {
+            idx.put(s, idx.size());
+        }
+        IntGnfa ig = create(idx.size(), idx.get(g.getStart()), idx.get(g
+                .getEnd()), g.getExprFactory());
+
+        for (Transition t : g.edgeSet()) {
+            int src = idx.get(t.getSource());
+            int dst = idx.get(t.getTarget());
+            Expr lbl = ig.getLabel(src, dst);
+            if (lbl == null) {
+                ig.setLabel(src, dst, t.getLabel());
+            } else {
+                ig.setLabel(src, dst, ig.exprs.union(lbl, t.getLabel()));
+            }
+        }
+        return ig;
+    }
+
+    /**
+     * @return number of state slots (including removed states)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of states that have not been removed
+     */
+    public int getLiveCount() {
+        return live;
+    }
+
+    /**
+     * @return number of transitions
+     */
+    public int getEdgeCount() {
+        return edges;
+    }
+
+    public boolean isAlive(int s) {
+        return alive[s];
+    }
+
+    /**
+     * @return the factory that is used to build the transition labels
+     */
+    public ExprFactory getExprFactory() {
+        return exprs;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getAccept() {
+        return accept;
+    }
+
+    /**
+     * remove state s together with all its transitions
+     * @param s the state to remove
+     */
+    public void removeState(int s) {
+        if (!alive[s]) {
+            return;
+        }
+        removeTransitionsOf(s);
+        alive[s] = false;
+        live--;
+    }
+
+    /**
+     * get the label of the transition from src to dst
+     * @param src source state
+     * @param dst target state
+     * @return the label or null if there is no such transition
+     */
+    public abstract Expr getLabel(int src, int dst);
+
+    /**
+     * set the label of the transition from src to dst
+     * @param src source state
+     * @param dst target state
+     * @param lbl the label; null removes the transition
+     */
+    public abstract void setLabel(int src, int dst, Expr lbl);
+
+    /**
+     * collect the predecessors of s (without s itself)
+     * @param s state
+     * @param out the list to be filled
+     */
+    public abstract void getIncoming(int s, IntList out);
+
+    /**
+     * collect the successors of s (without s itself)
+     * @param s state
+     * @param out the list to be filled
+     */
+    public abstract void getOutgoing(int s, IntList out);
+
+    protected abstract void removeTransitionsOf(int s);
+
+}
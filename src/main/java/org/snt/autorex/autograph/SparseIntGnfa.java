@@ -0,0 +1,117 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.autograph;
+
+import org.snt.autorex.expr.Expr;
+import org.snt.autorex.expr.ExprFactory;
+import org.snt.autorex.utils.IntList;
+import org.snt.autorex.utils.IntObjectMap;
+
+/**
+ * integer gnfa backed by per-state adjacency maps
+ */
+class SparseIntGnfa extends IntGnfa {
+
+    private final IntObjectMap<Expr>[] out;
+    private final IntObjectMap<Expr>[] in;
+    private final IntList buf = new IntList();
+
+    SparseIntGnfa(int size, int start, int accept,
+                 ExprFactory exprs) {
+        super(size, start, accept, exprs);
+        this.out = newMaps(size);
+        this.in = newMaps(size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IntObjectMap<Expr>[] newMaps(int size) {
+        IntObjectMap<Expr>[] ret = (IntObjectMap<Expr>[]) new
+                IntObjectMap<?>[size];
+        for (int i = 0; i < size; i++) {
+            ret[i] = new IntObjectMap<>();
+        }
+        return ret;
+    }
+
+    @Override
+    public Expr getLabel(int src, int dst) {
+        return out[src].get(dst);
+    }
+
+    @Override
+    public void setLabel(int src, int dst, Expr lbl) {
+        if (lbl == null) {
+            if (out[src].remove(dst) != null) {
+                edges--;
+            }
+            in[dst].remove(src);
+        } else {
+            if (out[src].put(dst, lbl) == null) {
+                edges++;
+            }
+            in[dst].put(src, lbl);
+        }
+    }
+
+    @Override
+    public void getIncoming(int s, IntList l) {
+        collect(in[s], s, l);
+    }
+
+    @Override
+    public void getOutgoing(int s, IntList l) {
+        collect(out[s], s, l);
+    }
+
+    private void collect(IntObjectMap<Expr> m, int s, IntList l) {
+        buf.clear();
+        m.keys(buf);
+        for (int i = 0; i < buf.size(); i++) {
+            if (buf.get(i) != s) {
+                l.add(buf.get(i));
+            }
+        }
+    }
+
+    @Override
+    protected void removeTransitionsOf(int s) {
+        buf.clear();
+        out[s].keys(buf);
+        for (int i = 0; i < buf.size(); i++) {
+            in[buf.get(i)].remove(s);
+        }
+        edges -= out[s].size();
+        out[s].clear();
+        buf.clear();
+        in[s].keys(buf);
+        for (int i = 0; i < buf.size(); i++) {
+            out[buf.get(i)].remove(s);
+        }
+        edges -= buf.size();
+        in[s].clear();
+    }
+}
@@ -26,8 +26,10 @@
 
 package org.snt.autorex.autograph;
 
-import java.math.BigInteger;
-
+/**
+ * A state of a gnfa. State ids are dense and allocated by the owning
+ * {@link Gnfa}; they are only unique within that graph.
+ */
 public class State implements Cloneable {
     public enum Kind {
         NORMAL,
@@ -35,27 +37,20 @@ public class State implements Cloneable {
         ACCEPT
     }
 
-    private Kind kind = Kind.NORMAL;
-
-    private static BigInteger cnt = new BigInteger("0");
+    private final Kind kind;
 
-    private BigInteger id = new BigInteger("0");
+    private final int id;
 
     public State(State s) {
         this.kind = s.kind;
         this.id = s.id;
     }
 
-    public State(Kind kind) {
-        cnt = cnt.add(new BigInteger("1"));
-        id = cnt;
+    State(int id, Kind kind) {
+        this.id = id;
         this.kind = kind;
     }
 
-    private State() {
-        this(Kind.NORMAL);
-    }
-
     public State clone() {
         return new State(this);
     }
@@ -67,15 +62,18 @@ public class State implements Cloneable {
 
         State s = (State)o;
 
-        return s.kind == this.kind && s.id.equals(this.id);
+        return s.id == this.id && s.kind == this.kind;
     }
 
     @Override
     public int hashCode() {
-        return this.id.hashCode();
+        // ids are dense; mix them so that hashes of state pairs, as used
+        // by the graph for edge lookups, are spread as well
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 
-    public BigInteger getId() {
+    public int getId() {
         return this.id;
     }
 
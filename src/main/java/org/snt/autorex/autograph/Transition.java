@@ -26,6 +26,7 @@
 
 package org.snt.autorex.autograph;
 
+import org.snt.autorex.expr.Expr;
 
 public class Transition implements Cloneable {
 
@@ -62,29 +63,20 @@ public class Transition implements Cloneable {
         this.prop = prop;
     }
 
-    private StringBuilder m = new StringBuilder();
+    private Expr m = Expr.EPSILON;
     private State src = null;
     private State dst = null;
 
 
-    public Transition(State src, State dst, Kind k, StringBuilder m) {
+    public Transition(State src, State dst, Kind k, Expr m) {
         this(src,dst,k);
         this.m = m;
     }
 
-
-    public Transition(State src, State dst, Kind k, String s) {
-        this(src,dst,k);
-        this.m.append(s);
-    }
-
     public Transition(State src, State dst, Kind k) {
         this.src = src;
         this.dst = dst;
         this.kind = k;
-
-        if(k == Kind.EPSILON)
-            this.m = new StringBuilder(".{0}");
     }
 
     public Kind getKind() {
@@ -116,7 +108,7 @@ public class Transition implements Cloneable {
         return new Transition(src,dst,kind,m);
     }
 
-    public StringBuilder getLabel() {
+    public Expr getLabel() {
         return m;
     }
 
@@ -125,15 +117,14 @@ public class Transition implements Cloneable {
         return src.getDotLabel() + " -(" + m.toString() + ")>" + dst.getDotLabel();
     }
 
-    public void setLabel(StringBuilder lbl) {
+    public void setLabel(Expr lbl) {
         this.m = lbl;
     }
 
 
     @Override
     public int hashCode() {
-        return String.valueOf(src.getDotLabel() + dst.getDotLabel()).hashCode();
-
+        return 31 * src.hashCode() + dst.hashCode();
     }
 
     @Override
@@ -0,0 +1,279 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import org.snt.autorex.ConversionAbortedException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded in-memory cache for conversion results. Entries are keyed by
+ * the {@link Fingerprint} of the automaton together with the settings
+ * that influence the resulting string. The cache evicts least recently
+ * used entries once the total length of all cached regular expressions
+ * exceeds its capacity. Concurrent requests for the same key are
+ * coalesced so that every key is computed only once.
+ */
+public class ConversionCache {
+
+    /**
+     * cache key
+     */
+    public static final class Key {
+        private final Fingerprint fp;
+        private final Object[] settings;
+        private final int hash;
+
+        /**
+         * @param fp fingerprint of the automaton
+         * @param settings conversion settings that influence the result
+         */
+        public Key(Fingerprint fp, Object... settings) {
+            this.fp = fp;
+            this.settings = settings;
+            this.hash = 31 * fp.hashCode() + Arrays.hashCode
+                    (settings);
+        }
+
+        public Fingerprint getFingerprint() {
+            return fp;
+        }
+
+        /**
+         * @return a fingerprint of this key that does not change across
+         * runs of the JVM or null if one of the settings is not stable, see
+         * {@link StableId#of(Object)}
+         */
+        public Fingerprint getStableFingerprint() {
+            Fingerprint ret = fp;
+            for (Object o : settings) {
+                String s = StableId.of(o);
+                if (s == null)
+                    return null;
+                // 64 bit FNV-1a
+                long h = 0xcbf29ce484222325L;
+                for (int i = 0; i < s.length(); i++) {
+                    h ^= s.charAt(i);
+                    h *= 0x100000001b3L;
+                }
+                ret = ret.with(h);
+            }
+            return ret;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return hash == k.hash && fp.equals(k.fp) && Arrays
+                    .equals(settings, k.settings);
+        }
+    }
+
+    // milliseconds between two runs of the waiting callback
+    private static final long WAIT_INTERVAL = 10L;
+
+    private final long capacity;
+    private long weight = 0L;
+
+    private final LinkedHashMap<Key, String> entries = new LinkedHashMap<>
+            (16, 0.75f, true);
+    private final Map<Key, CompletableFuture<String>> inflight = new
+            ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param capacity maximum total number of characters of all cached
+     *                 regular expressions
+     */
+    public ConversionCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * look up key k and compute the value if it is absent; if the same key
+     * is being computed by another thread, wait for its result
+     * @param k key
+     * @param conversion computes the value for k
+     * @return the cached or computed regular expression
+     */
+    public String get(Key k, Supplier<String> conversion) {
+        return get(k, conversion, null);
+    }
+
+    /**
+     * look up key k and compute the value if it is absent; if the same key
+     * is being computed by another thread, wait for its result. If the
+     * conversion of the other thread is aborted, e.g. because its own
+     * limits are exceeded, the value is computed again by one of the
+     * waiting threads.
+     * @param k key
+     * @param conversion computes the value for k
+     * @param waiting if set, it is run regularly while waiting for another
+     *                thread; it may throw in order to stop waiting, e.g.
+     *                once the limits of the caller are exceeded
+     * @return the cached or computed regular expression
+     */
+    public String get(Key k, Supplier<String> conversion, Runnable waiting) {
+        while (true) {
+            String v = lookup(k);
+            if (v != null) {
+                hits.increment();
+                return v;
+            }
+
+            CompletableFuture<String> f = new CompletableFuture<>();
+            CompletableFuture<String> running = inflight.putIfAbsent(k, f);
+
+            if (running == null)
+                return compute(k, f, conversion);
+
+            coalesced.increment();
+            v = await(running, waiting);
+            if (v != null)
+                return v;
+        }
+    }
+
+    private String compute(Key k, CompletableFuture<String> f,
+                           Supplier<String> conversion) {
+        try {
+            // the value might have been stored in the meantime
+            String v = lookup(k);
+            if (v != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                v = conversion.get();
+                store(k, v);
+            }
+            f.complete(v);
+            return v;
+        } catch (Throwable e) {
+            // errors such as stack overflows have to be passed on as well,
+            // otherwise the waiting threads would block forever
+            f.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(k, f);
+        }
+    }
+
+    /**
+     * wait for the conversion of another thread
+     * @return its result or null if it has been aborted
+     */
+    private static String await(CompletableFuture<String> running, Runnable
+            waiting) {
+        while (true) {
+            try {
+                if (waiting == null)
+                    return running.get();
+                return running.get(WAIT_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                waiting.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ConversionAbortedException)
+                    return null;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new CompletionException(cause);
+            }
+        }
+    }
+
+    /**
+     * @param k key
+     * @return the cached value or null
+     */
+    public synchronized String lookup(Key k) {
+        return entries.get(k);
+    }
+
+    /**
+     * add an entry to the cache
+     * @param k key
+     * @param v regular expression
+     */
+    public synchronized void store(Key k, String v) {
+        Objects.requireNonNull(v);
+        if (v.length() > capacity)
+            return;
+
+        String old = entries.put(k, v);
+        if (old != null) {
+            weight -= old.length();
+        }
+        weight += v.length();
+
+        Iterator<Map.Entry<Key, String>> iter = entries.entrySet().iterator();
+        while (weight > capacity && iter.hasNext()) {
+            Map.Entry<Key, String> e = iter.next();
+            weight -= e.getValue().length();
+            iter.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0L;
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(),
+                coalesced.sum(), entries.size(), weight);
+    }
+}
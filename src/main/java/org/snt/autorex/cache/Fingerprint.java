@@ -0,0 +1,168 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A 128 bit fingerprint of an automaton. The fingerprint is computed from
+ * the states and transitions of the automaton as it is, numbered in
+ * breadth-first order (following transitions in the order of their
+ * character ranges), so it does not depend on the identity of the states
+ * and is cheap compared to a conversion. Equal fingerprints imply equal
+ * languages. Equivalent automata yield the same fingerprint if they are
+ * minimal, e.g., those returned by dk.brics with its default settings;
+ * other equivalent automata may yield different fingerprints.
+ */
+public final class Fingerprint {
+
+    private final long hi;
+    private final long lo;
+
+    public Fingerprint(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * compute the fingerprint of an automaton; a is not modified
+     * @param a automaton
+     * @return the fingerprint of the structure of a
+     */
+    public static Fingerprint of(Automaton a) {
+        long h1 = 0x243F6A8885A308D3L;
+        long h2 = 0x13198A2E03707344L;
+
+        String singleton = a.getSingleton();
+        if (singleton != null) {
+            // the same values as for the expanded chain of states, without
+            // expanding a
+            int n = singleton.length();
+            for (int i = 0; i <= n; i++) {
+                long v = i == n ? 1L : 1L << 1;
+                h1 = mix1(h1, v);
+                h2 = mix2(h2, v);
+                if (i < n) {
+                    long c = singleton.charAt(i);
+                    v = (c << 48) | (c << 32) | ((i + 1) & 0xFFFFFFFFL);
+                    h1 = mix1(h1, v);
+                    h2 = mix2(h2, v);
+                }
+            }
+            return new Fingerprint(h1, h2);
+        }
+
+        Map<State, Integer> number = new IdentityHashMap<>();
+        Deque<State> queue = new ArrayDeque<>();
+        State init = a.getInitialState();
+        number.put(init, 0);
+        queue.add(init);
+
+        while (!queue.isEmpty()) {
+            State s = queue.poll();
+            List<Transition> trans = s.getSortedTransitions(false);
+
+            long v = s.isAccept() ? 1L : 0L;
+            v |= ((long) trans.size()) << 1;
+            h1 = mix1(h1, v);
+            h2 = mix2(h2, v);
+
+            for (Transition t : trans) {
+                Integer dst = number.get(t.getDest());
+                if (dst == null) {
+                    dst = number.size();
+                    number.put(t.getDest(), dst);
+                    queue.add(t.getDest());
+                }
+                v = ((long) t.getMin() << 48) | ((long) t.getMax() << 32) |
+                        (dst & 0xFFFFFFFFL);
+                h1 = mix1(h1, v);
+                h2 = mix2(h2, v);
+            }
+        }
+        return new Fingerprint(h1, h2);
+    }
+
+    private static long mix1(long h, long v) {
+        return avalanche(h ^ v) * 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix2(long h, long v) {
+        return avalanche(h + v * 0xC2B2AE3D27D4EB4FL) ^ (h >>> 29);
+    }
+
+    private static long avalanche(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * combine this fingerprint with additional key material
+     * @param v a value to mix in
+     * @return a new fingerprint
+     */
+    public Fingerprint with(long v) {
+        return new Fingerprint(mix1(hi, v), mix2(lo, v));
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hi ^ (hi >>> 32) ^ lo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Fingerprint))
+            return false;
+
+        Fingerprint f = (Fingerprint) o;
+
+        return hi == f.hi && lo == f.lo;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", hi, lo);
+    }
+}
@@ -0,0 +1,689 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+
+package org.snt.autorex.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * A conversion cache that keeps its entries on disk so that they survive
+ * restarts of the JVM. Recently used entries are additionally kept in
+ * memory as in {@link ConversionCache}.
+ *
+ * The cache directory contains an append-only data file and an index.
+ * Every record of the data file consists of the stable fingerprint of its
+ * key (see {@link Key#getStableFingerprint()}), the length of the UTF-8
+ * encoded regular expression and the CRC32 of the record, followed by the
+ * expression. The index is a memory-mapped open-addressing hash table
+ * that maps fingerprints to record offsets and to the time of their last
+ * use; its header holds the length of the data file. The data file is
+ * mapped as well and the mapping grows geometrically, so that records are
+ * appended and read through it and {@link #lookupBytes(Key)} does not
+ * copy. Once the data file would exceed its size limit, it is compacted:
+ * the most recently used records are copied into a fresh file until half
+ * of the limit is reached.
+ *
+ * Keys with settings that are not stable across runs of the JVM (see
+ * {@link StableId}) are only kept in memory.
+ *
+ * Files are never replaced or truncated while they are open or mapped,
+ * which some platforms do not allow. Instead, every data file and index
+ * gets a random generation number in its name, and a small pointer file
+ * names the current pair. Compaction and growing the index write new
+ * files and then atomically replace the pointer; the old files are
+ * deleted once they are closed, or on the next start if that fails. If
+ * the index does not match the data file, e.g., after a crash, it is
+ * rebuilt by scanning the intact records of the data file. The directory
+ * is locked so that only one cache instance uses it at a time.
+ */
+public class PersistentConversionCache extends ConversionCache implements
+        Closeable {
+
+    final static Logger LOGGER = LoggerFactory.getLogger
+            (PersistentConversionCache.class);
+
+    private static final int DATA_MAGIC = 0x41525844;
+    private static final int INDEX_MAGIC = 0x41525849;
+    private static final int CURRENT_MAGIC = 0x41525843;
+    private static final int VERSION = 2;
+
+    // magic, version, generation
+    private static final int DATA_HEADER = 16;
+    // magic, version, generation, data length, slots, count
+    private static final int INDEX_HEADER = 32;
+    // magic, version, data generation, index generation
+    private static final int CURRENT = 24;
+    // hi, lo, offset + 1, stamp
+    private static final int SLOT = 32;
+    // hi, lo, length, crc
+    private static final int RECORD_HEADER = 24;
+
+    private static final int MIN_SLOTS = 1024;
+    private static final int MIN_MAP = 1 << 16;
+
+    private final Path dir;
+    private final Path currentPath;
+    private final long maxBytes;
+
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    private FileChannel data;
+    private MappedByteBuffer dataMap;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+
+    private long generation;
+    private long indexGeneration;
+    private long dataLength;
+    private int slots;
+    private int count;
+    private long stamp;
+
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    /**
+     * open or create a cache in directory dir
+     * @param dir the cache directory
+     * @param capacity maximum total number of characters of the
+     *                 expressions that are kept in memory
+     * @param maxBytes maximum size of the data file in bytes
+     * @throws IOException if the directory cannot be used
+     */
+    public PersistentConversionCache(Path dir, long capacity, long maxBytes)
+            throws IOException {
+        super(capacity);
+        if (maxBytes <= DATA_HEADER || maxBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("maxBytes out of range");
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        this.dir = dir;
+        this.currentPath = dir.resolve("current");
+
+        this.lockChannel = FileChannel.open(dir.resolve("lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock l;
+        try {
+            l = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            l = null;
+        }
+        this.lock = l;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException(dir + " is used by another cache");
+        }
+
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private Path dataPath(long gen) {
+        return dir.resolve(String.format("data-%016x", gen));
+    }
+
+    private Path indexPath(long gen) {
+        return dir.resolve(String.format("index-%016x", gen));
+    }
+
+    private static long nextGeneration() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private void open() throws IOException {
+        ByteBuffer cur = null;
+        if (Files.exists(currentPath) && Files.size(currentPath) == CURRENT) {
+            cur = ByteBuffer.wrap(Files.readAllBytes(currentPath));
+            if (cur.getInt() != CURRENT_MAGIC || cur.getInt() != VERSION)
+                throw new IOException(currentPath + " is not a cache file");
+        }
+
+        if (cur == null || !Files.exists(dataPath(cur.getLong(8)))) {
+            createData(nextGeneration());
+            createIndex(MIN_SLOTS);
+            commit();
+        } else {
+            generation = cur.getLong(8);
+            data = FileChannel.open(dataPath(generation), StandardOpenOption
+                    .READ, StandardOpenOption.WRITE);
+            ByteBuffer h = ByteBuffer.allocate(DATA_HEADER);
+            data.read(h, 0L);
+            h.flip();
+            if (h.remaining() < DATA_HEADER || h.getInt() != DATA_MAGIC || h
+                    .getInt() != VERSION || h.getLong() != generation)
+                throw new IOException(dataPath(generation) + " is not a " +
+                        "cache file");
+            if (!openIndex(cur.getLong(16))) {
+                LOGGER.debug("rebuilding index of {}", dataPath(generation));
+                rebuildIndex();
+            }
+        }
+        deleteStale();
+    }
+
+    /**
+     * create a data file that only contains the header
+     */
+    private void createData(long gen) throws IOException {
+        generation = gen;
+        data = FileChannel.open(dataPath(gen), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataMap = null;
+        ByteBuffer h = ByteBuffer.allocate(DATA_HEADER);
+        h.putInt(DATA_MAGIC).putInt(VERSION).putLong(gen).flip();
+        data.write(h, 0L);
+        dataLength = DATA_HEADER;
+    }
+
+    /**
+     * map the existing index
+     * @return false if the index has to be rebuilt
+     */
+    private boolean openIndex(long gen) throws IOException {
+        Path p = indexPath(gen);
+        if (!Files.exists(p) || Files.size(p) < INDEX_HEADER)
+            return false;
+        FileChannel c = FileChannel.open(p, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        ByteBuffer h = ByteBuffer.allocate(INDEX_HEADER);
+        c.read(h, 0L);
+        h.flip();
+        if (h.getInt() != INDEX_MAGIC || h.getInt() != VERSION || h.getLong()
+                != generation) {
+            c.close();
+            return false;
+        }
+        long len = h.getLong();
+        int n = h.getInt();
+        int k = h.getInt();
+        if (n < MIN_SLOTS || Integer.bitCount(n) != 1 || c.size() !=
+                INDEX_HEADER + (long) n * SLOT || len < DATA_HEADER || len >
+                data.size()) {
+            c.close();
+            return false;
+        }
+        // appends that have not been committed to the index are
+        // overwritten by the next ones
+        indexChannel = c;
+        indexGeneration = gen;
+        dataLength = len;
+        slots = n;
+        count = k;
+        index = c.map(FileChannel.MapMode.READ_WRITE, 0L, c.size());
+        stamp = 0L;
+        for (int i = 0; i < slots; i++) {
+            stamp = Math.max(stamp, index.getLong(slot(i) + 24));
+        }
+        return true;
+    }
+
+    /**
+     * create an index for the intact records of the data file
+     */
+    private void rebuildIndex() throws IOException {
+        createIndex(MIN_SLOTS);
+        long pos = DATA_HEADER;
+        long size = data.size();
+        ByteBuffer h = ByteBuffer.allocate(RECORD_HEADER);
+        CRC32 crc = new CRC32();
+        while (pos + RECORD_HEADER <= size) {
+            h.clear();
+            data.read(h, pos);
+            h.flip();
+            long hi = h.getLong();
+            long lo = h.getLong();
+            int len = h.getInt();
+            int sum = h.getInt();
+            if (len < 0 || pos + RECORD_HEADER + len > size)
+                break;
+            ByteBuffer v = ByteBuffer.allocate(len);
+            data.read(v, pos + RECORD_HEADER);
+            crc.reset();
+            crc.update(h.array(), 0, RECORD_HEADER - 4);
+            crc.update(v.array(), 0, len);
+            if ((int) crc.getValue() != sum)
+                break;
+            put(hi, lo, pos, stamp + 1);
+            pos += RECORD_HEADER + len;
+        }
+        dataLength = pos;
+        writeIndexHeader();
+        commit();
+    }
+
+    /**
+     * create and map an empty index file with a new generation; the
+     * previous index is left open
+     */
+    private void createIndex(int n) throws IOException {
+        indexGeneration = nextGeneration();
+        indexChannel = FileChannel.open(indexPath(indexGeneration),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0L,
+                INDEX_HEADER + (long) n * SLOT);
+        slots = n;
+        count = 0;
+        stamp = 0L;
+        writeIndexHeader();
+    }
+
+    private void writeIndexHeader() {
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, VERSION);
+        index.putLong(8, generation);
+        index.putLong(16, dataLength);
+        index.putInt(24, slots);
+        index.putInt(28, count);
+    }
+
+    /**
+     * make the current data file and index the ones that are opened next
+     * time; the pointer file is never kept open, so it can be replaced
+     */
+    private void commit() throws IOException {
+        index.force();
+        ByteBuffer b = ByteBuffer.allocate(CURRENT);
+        b.putInt(CURRENT_MAGIC).putInt(VERSION).putLong(generation).putLong
+                (indexGeneration).flip();
+        Path tmp = dir.resolve("current.tmp");
+        try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption
+                        .TRUNCATE_EXISTING)) {
+            while (b.hasRemaining()) {
+                c.write(b);
+            }
+            c.force(true);
+        }
+        Files.move(tmp, currentPath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * delete a file that is no longer current
+     */
+    private static void delete(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            // e.g., while it is still mapped; retried on the next start
+            LOGGER.debug("cannot delete {}: {}", p, e.toString());
+        }
+    }
+
+    /**
+     * delete the files of earlier generations
+     */
+    private void deleteStale() throws IOException {
+        Path d = dataPath(generation);
+        Path i = indexPath(indexGeneration);
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir,
+                "{data-*,index-*,*.tmp}")) {
+            for (Path p : ds) {
+                if (!p.equals(d) && !p.equals(i))
+                    delete(p);
+            }
+        }
+    }
+
+    private static int slot(int i) {
+        return INDEX_HEADER + i * SLOT;
+    }
+
+    /**
+     * @return the slot of (hi, lo) or the empty slot where it belongs
+     */
+    private int find(long hi, long lo) {
+        long h = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+        int i = (int) (h >>> 32) & (slots - 1);
+        while (true) {
+            int p = slot(i);
+            if (index.getLong(p + 16) == 0L || (index.getLong(p) == hi &&
+                    index.getLong(p + 8) == lo)) {
+                return i;
+            }
+            i = (i + 1) & (slots - 1);
+        }
+    }
+
+    private void put(long hi, long lo, long offset, long s) throws
+            IOException {
+        if ((count + 1) * 2 > slots) {
+            growIndex();
+        }
+        int p = slot(find(hi, lo));
+        if (index.getLong(p + 16) == 0L) {
+            count++;
+        }
+        index.putLong(p, hi);
+        index.putLong(p + 8, lo);
+        index.putLong(p + 16, offset + 1);
+        index.putLong(p + 24, s);
+        stamp = Math.max(stamp, s);
+    }
+
+    private void growIndex() throws IOException {
+        FileChannel oldChannel = indexChannel;
+        MappedByteBuffer old = index;
+        long oldGeneration = indexGeneration;
+        int n = slots;
+        createIndex(n << 1);
+        long s = 0L;
+        for (int i = 0; i < n; i++) {
+            int p = slot(i);
+            long off = old.getLong(p + 16);
+            if (off != 0L) {
+                int q = slot(find(old.getLong(p), old.getLong(p + 8)));
+                for (int j = 0; j < SLOT; j += 8) {
+                    index.putLong(q + j, old.getLong(p + j));
+                }
+                count++;
+                s = Math.max(s, old.getLong(p + 24));
+            }
+        }
+        stamp = s;
+        writeIndexHeader();
+        commit();
+        oldChannel.close();
+        delete(indexPath(oldGeneration));
+    }
+
+    /**
+     * map at least the first size bytes of the data file; the mapping
+     * grows geometrically so that appends rarely remap the file
+     */
+    private void map(long size) throws IOException {
+        if (dataMap != null && dataMap.capacity() >= size)
+            return;
+        long cap = dataMap == null ? MIN_MAP : 2L * dataMap.capacity();
+        cap = Math.max(size, Math.min(cap, maxBytes));
+        if (data.size() < cap) {
+            data.write(ByteBuffer.allocate(1), cap - 1);
+        }
+        dataMap = data.map(FileChannel.MapMode.READ_WRITE, 0L, cap);
+    }
+
+    /**
+     * @return a read-only view of the record at offset or null if it does
+     * not belong to (hi, lo)
+     */
+    private ByteBuffer read(long hi, long lo, long offset) throws
+            IOException {
+        if (offset + RECORD_HEADER > dataLength)
+            return null;
+        map(dataLength);
+        int p = (int) offset;
+        int len = dataMap.getInt(p + 16);
+        if (dataMap.getLong(p) != hi || dataMap.getLong(p + 8) != lo || len
+                < 0 || offset + RECORD_HEADER + len > dataLength)
+            return null;
+        ByteBuffer b = dataMap.duplicate();
+        b.limit(p + RECORD_HEADER + len).position(p + RECORD_HEADER);
+        return b.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * look up the UTF-8 encoded regular expression of key k on disk
+     * without copying it
+     * @param k key
+     * @return a read-only view of the mapped data file or null if there
+     * is no entry for k on disk
+     */
+    public synchronized ByteBuffer lookupBytes(Key k) {
+        Fingerprint fp = k.getStableFingerprint();
+        if (fp == null)
+            return null;
+        try {
+            int p = slot(find(fp.getHi(), fp.getLo()));
+            long off = index.getLong(p + 16);
+            if (off == 0L)
+                return null;
+            ByteBuffer b = read(fp.getHi(), fp.getLo(), off - 1);
+            if (b != null) {
+                index.putLong(p + 24, ++stamp);
+            }
+            return b;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized String lookup(Key k) {
+        String v = super.lookup(k);
+        if (v != null)
+            return v;
+        ByteBuffer b = lookupBytes(k);
+        if (b == null)
+            return null;
+        diskHits.increment();
+        v = StandardCharsets.UTF_8.decode(b).toString();
+        super.store(k, v);
+        return v;
+    }
+
+    @Override
+    public synchronized void store(Key k, String v) {
+        super.store(k, v);
+        Fingerprint fp = k.getStableFingerprint();
+        if (fp == null)
+            return;
+        byte [] bytes = v.getBytes(StandardCharsets.UTF_8);
+        long size = RECORD_HEADER + bytes.length;
+        if (DATA_HEADER + size > maxBytes / 2)
+            return;
+        try {
+            if (dataLength + size > maxBytes) {
+                compact(maxBytes / 2 - size);
+            }
+            ByteBuffer h = ByteBuffer.allocate(RECORD_HEADER);
+            h.putLong(fp.getHi()).putLong(fp.getLo()).putInt(bytes.length);
+            CRC32 crc = new CRC32();
+            crc.update(h.array(), 0, RECORD_HEADER - 4);
+            crc.update(bytes, 0, bytes.length);
+            h.putInt((int) crc.getValue()).flip();
+
+            long off = dataLength;
+            map(off + size);
+            ByteBuffer b = dataMap.duplicate();
+            b.position((int) off);
+            b.put(h).put(bytes);
+            dataLength += size;
+            put(fp.getHi(), fp.getLo(), off, stamp + 1);
+            writeIndexHeader();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * copy the most recently used records into a new data file until its
+     * size would exceed target; the records keep their time of last use
+     * @param target maximum size of the new data file
+     * @throws IOException if the files cannot be written
+     */
+    private void compact(long target) throws IOException {
+        // stamp, offset
+        List<long []> live = new ArrayList<>(count);
+        for (int i = 0; i < slots; i++) {
+            int p = slot(i);
+            long off = index.getLong(p + 16);
+            if (off != 0L) {
+                live.add(new long[]{index.getLong(p + 24), off - 1});
+            }
+        }
+        live.sort((a, b) -> Long.compare(b[0], a[0]));
+        map(dataLength);
+
+        FileChannel oldData = data;
+        FileChannel oldIndex = indexChannel;
+        MappedByteBuffer old = dataMap;
+        long oldGeneration = generation;
+        long oldIndexGeneration = indexGeneration;
+
+        createData(nextGeneration());
+        // hi, lo, offset, stamp
+        List<long []> kept = new ArrayList<>();
+        for (long [] r : live) {
+            int p = (int) r[1];
+            long len = RECORD_HEADER + old.getInt(p + 16);
+            if (dataLength + len > target)
+                break;
+            ByteBuffer b = old.duplicate();
+            b.limit(p + (int) len).position(p);
+            while (b.hasRemaining()) {
+                data.write(b, dataLength + b.position() - p);
+            }
+            kept.add(new long[]{old.getLong(p), old.getLong(p + 8),
+                    dataLength, r[0]});
+            dataLength += len;
+        }
+        data.force(true);
+
+        createIndex(slots);
+        for (long [] r : kept) {
+            put(r[0], r[1], r[2], r[3]);
+        }
+        writeIndexHeader();
+        commit();
+
+        oldData.close();
+        oldIndex.close();
+        delete(dataPath(oldGeneration));
+        delete(indexPath(oldIndexGeneration));
+        compactions.increment();
+        LOGGER.debug("compacted {} of {} records", kept.size(), live.size());
+    }
+
+    /**
+     * compact the data file so that it only contains live records
+     */
+    public synchronized void compact() {
+        try {
+            compact(maxBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        try {
+            compact(DATA_HEADER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return number of entries on disk
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return size of the data file in bytes
+     */
+    public synchronized long getDataBytes() {
+        return dataLength;
+    }
+
+    /**
+     * @return number of lookups that have been answered from disk
+     */
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    /**
+     * @return number of compactions since the cache has been opened
+     */
+    public long getCompactions() {
+        return compactions.sum();
+    }
+
+    /**
+     * flush both files to the storage device
+     */
+    public synchronized void force() {
+        try {
+            if (dataMap != null)
+                dataMap.force();
+            if (data != null && data.isOpen())
+                data.force(true);
+            if (index != null)
+                index.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            force();
+            if (data != null)
+                data.close();
+            if (indexChannel != null)
+                indexChannel.close();
+        } finally {
+            dataMap = null;
+            index = null;
+            if (lock.isValid())
+                lock.release();
+            lockChannel.close();
+        }
+    }
+}
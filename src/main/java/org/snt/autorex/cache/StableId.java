@@ -0,0 +1,67 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.cache;
+
+/**
+ * An object whose influence on a conversion result can be identified
+ * across runs of the JVM. Only keys whose settings are stable are stored
+ * on disk by {@link PersistentConversionCache}.
+ */
+public interface StableId {
+
+    /**
+     * @return an identifier that is equal for two objects if and only if
+     * they lead to the same conversion results, also in another run of the
+     * JVM; null if there is no such identifier
+     */
+    String stableId();
+
+    /**
+     * compute the stable identifier of a setting; enum constants, strings,
+     * numbers and booleans are identified by their value
+     * @param o the setting
+     * @return the identifier of o including its type or null if o is not
+     * stable
+     */
+    static String of(Object o) {
+        if (o == null)
+            return "null";
+        if (o instanceof Enum) {
+            Enum<?> e = (Enum<?>) o;
+            return e.getDeclaringClass().getName() + "." + e.name();
+        }
+        if (o instanceof CharSequence || o instanceof Number || o instanceof
+                Boolean) {
+            return o.getClass().getName() + ":" + o;
+        }
+        if (o instanceof StableId) {
+            String id = ((StableId) o).stableId();
+            return id == null ? null : o.getClass().getName() + ":" + id;
+        }
+        return null;
+    }
+}
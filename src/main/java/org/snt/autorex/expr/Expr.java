@@ -0,0 +1,349 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.expr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * An immutable regular expression node that is used as transition label.
+ * Nodes are hash-consed by an {@link ExprFactory}: structurally equal
+ * nodes that were created by the same factory are identical, so that
+ * shared subexpressions are stored only once. Equality is therefore
+ * checked shallowly, i.e., children are compared by reference.
+ */
+public final class Expr {
+
+    public enum Kind {
+        EPSILON(PREC_POSTFIX),
+        ATOM(PREC_PRIMARY),
+        CONCAT(PREC_CONCAT),
+        UNION(PREC_UNION),
+        STAR(PREC_POSTFIX),
+        PLUS(PREC_POSTFIX),
+        OPT(PREC_POSTFIX);
+
+        private final int prec;
+
+        Kind(int prec) {
+            this.prec = prec;
+        }
+
+        public boolean isPostfix() {
+            return this == STAR || this == PLUS || this == OPT;
+        }
+    }
+
+    private static final int PREC_UNION = 0;
+    private static final int PREC_CONCAT = 1;
+    private static final int PREC_POSTFIX = 2;
+    private static final int PREC_PRIMARY = 3;
+
+    private static final String EPS = ".{0}";
+
+    /**
+     * the empty word
+     */
+    public static final Expr EPSILON = new Expr(Kind.EPSILON, null, null,
+            null);
+
+    private final Kind kind;
+    private final String text;
+    private final Expr left;
+    private final Expr right;
+    private final int hash;
+    private final int prec;
+    private final boolean nullable;
+    private final long length;
+
+    Expr(Kind kind, String text, Expr left, Expr right) {
+        this.kind = kind;
+        this.text = text;
+        this.left = left;
+        this.right = right;
+        this.hash = computeHash();
+        this.prec = kind == Kind.ATOM ? getAtomPrecedence(text) : kind.prec;
+        this.nullable = computeNullable();
+        this.length = computeLength();
+    }
+
+    private int computeHash() {
+        int h = kind.ordinal();
+        h = 31 * h + (text != null ? text.hashCode() : 0);
+        h = 31 * h + (left != null ? left.hash : 0);
+        h = 31 * h + (right != null ? right.hash : 0);
+        return h;
+    }
+
+    private boolean computeNullable() {
+        switch (kind) {
+            case EPSILON:
+            case STAR:
+            case OPT:
+                return true;
+            case PLUS:
+                return left.nullable;
+            case CONCAT:
+                return left.nullable && right.nullable;
+            case UNION:
+                return left.nullable || right.nullable;
+        }
+        return false;
+    }
+
+    private long computeLength() {
+        switch (kind) {
+            case EPSILON:
+                return EPS.length();
+            case ATOM:
+                return text.length();
+            case CONCAT:
+                return left.length(PREC_CONCAT) + right.length(PREC_CONCAT);
+            case UNION:
+                return left.length + right.length + 1;
+            default:
+                return left.length(PREC_PRIMARY) + 1;
+        }
+    }
+
+    private long length(int context) {
+        return prec < context ? length + 2 : length;
+    }
+
+    /**
+     * check whether an atom text binds stronger than any operator, i.e.,
+     * whether it can be used as operand without parentheses
+     * @param t atom text
+     * @return true if t is a single (escaped) character, a character class
+     * or a parenthesized group
+     */
+    static boolean isClosed(String t) {
+        int n = t.length();
+        if (n == 1 || (n == 2 && t.charAt(0) == '\\'))
+            return true;
+
+        char c = t.charAt(0);
+        if (c != '[' && c != '(')
+            return false;
+
+        int depth = 0;
+        boolean cls = false;
+        for (int i = 0; i < n; i++) {
+            char ch = t.charAt(i);
+            if (ch == '\\') {
+                i++;
+            } else if (cls) {
+                cls = ch != ']';
+                if (!cls && c == '[')
+                    return i == n - 1;
+            } else if (ch == '[') {
+                cls = true;
+            } else if (ch == '(') {
+                depth++;
+            } else if (ch == ')') {
+                if (--depth == 0)
+                    return i == n - 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param t atom text
+     * @return the precedence of an atom text; literal strings such as
+     * abc bind like a concatenation, texts with a top-level alternative
+     * like a union
+     */
+    static int getAtomPrecedence(String t) {
+        if (isClosed(t))
+            return PREC_PRIMARY;
+        int depth = 0;
+        boolean cls = false;
+        for (int i = 0; i < t.length(); i++) {
+            char ch = t.charAt(i);
+            if (ch == '\\') {
+                i++;
+            } else if (cls) {
+                cls = ch != ']';
+            } else if (ch == '[') {
+                cls = true;
+            } else if (ch == '(') {
+                depth++;
+            } else if (ch == ')') {
+                depth--;
+            } else if (ch == '|' && depth == 0) {
+                return PREC_UNION;
+            }
+        }
+        return PREC_CONCAT;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the text of an atom or null for other kinds
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the left operand of a concatenation or union, or the operand
+     * of a star, plus or option
+     */
+    public Expr getLeft() {
+        return left;
+    }
+
+    /**
+     * @return the right operand of a concatenation or union
+     */
+    public Expr getRight() {
+        return right;
+    }
+
+    /**
+     * @return true if this expression matches the empty word
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * @return the length of the rendered expression
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * render this expression with a minimal number of parentheses; the
+     * traversal uses an explicit stack so that deeply nested expressions do
+     * not exhaust the thread stack
+     * @param sb the builder to which the expression is appended
+     */
+    public void render(StringBuilder sb) {
+        try {
+            render((Appendable) sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * render this expression piece by piece into out without materializing
+     * the full text; the extra memory is bounded by the nesting depth
+     * @param out the target to which the expression is appended
+     * @param <A> the type of the target
+     * @return out
+     * @throws IOException if out cannot be written
+     */
+    public <A extends Appendable> A render(A out) throws IOException {
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            Object o = stack.pop();
+            if (o instanceof String) {
+                out.append((String) o);
+                continue;
+            }
+            Expr e = (Expr) o;
+            switch (e.kind) {
+                case EPSILON:
+                    out.append(EPS);
+                    break;
+                case ATOM:
+                    out.append(e.text);
+                    break;
+                case CONCAT:
+                    pushOperand(stack, e.right, PREC_CONCAT);
+                    pushOperand(stack, e.left, PREC_CONCAT);
+                    break;
+                case UNION:
+                    stack.push(e.right);
+                    stack.push("|");
+                    stack.push(e.left);
+                    break;
+                case STAR:
+                    stack.push("*");
+                    pushOperand(stack, e.left, PREC_PRIMARY);
+                    break;
+                case PLUS:
+                    stack.push("+");
+                    pushOperand(stack, e.left, PREC_PRIMARY);
+                    break;
+                case OPT:
+                    stack.push("?");
+                    pushOperand(stack, e.left, PREC_PRIMARY);
+                    break;
+            }
+        }
+        return out;
+    }
+
+    private static void pushOperand(Deque<Object> stack, Expr e, int
+            context) {
+        if (e.prec < context) {
+            stack.push(")");
+            stack.push(e);
+            stack.push("(");
+        } else {
+            stack.push(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        render(sb);
+        return sb.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+
+        if (!(o instanceof Expr))
+            return false;
+
+        Expr e = (Expr) o;
+
+        return hash == e.hash && kind == e.kind && left == e.left && right
+                == e.right && Objects.equals(text, e.text);
+    }
+}
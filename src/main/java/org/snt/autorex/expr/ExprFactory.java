@@ -0,0 +1,164 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.expr;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates hash-consed expressions. All expressions that are combined with
+ * each other should stem from the same factory. A factory can be shared
+ * between threads.
+ */
+public class ExprFactory {
+
+    private final Map<Expr, Expr> pool = new ConcurrentHashMap<>();
+
+    private Expr intern(Expr e) {
+        Expr ret = pool.putIfAbsent(e, e);
+        return ret != null ? ret : e;
+    }
+
+    public Expr epsilon() {
+        return Expr.EPSILON;
+    }
+
+    /**
+     * create an atomic expression
+     * @param text the regular expression string of the atom
+     * @return atom
+     */
+    public Expr atom(String text) {
+        if (text.isEmpty())
+            return Expr.EPSILON;
+        return intern(new Expr(Expr.Kind.ATOM, text, null, null));
+    }
+
+    /**
+     * create a concatenation; epsilons are dropped and x x* is turned into
+     * x+
+     * @param left left operand
+     * @param right right operand
+     * @return concatenation
+     */
+    public Expr concat(Expr left, Expr right) {
+        if (left == Expr.EPSILON)
+            return right;
+        if (right == Expr.EPSILON)
+            return left;
+        if (right.getKind() == Expr.Kind.STAR && right.getLeft() == left)
+            return plus(left);
+        if (left.getKind() == Expr.Kind.STAR && left.getLeft() == right)
+            return plus(right);
+        return intern(new Expr(Expr.Kind.CONCAT, null, left, right));
+    }
+
+    /**
+     * create a union; duplicate operands are removed and a union with
+     * epsilon is turned into an option
+     * @param left left operand
+     * @param right right operand
+     * @return union
+     */
+    public Expr union(Expr left, Expr right) {
+        if (left == right)
+            return left;
+        if (left == Expr.EPSILON)
+            return opt(right);
+        if (right == Expr.EPSILON)
+            return opt(left);
+        if (left.getKind() == Expr.Kind.OPT)
+            return opt(union(left.getLeft(), right));
+        if (right.getKind() == Expr.Kind.OPT)
+            return opt(union(left, right.getLeft()));
+        if (isUnionOperand(right, left))
+            return right;
+        if (isUnionOperand(left, right))
+            return left;
+        return intern(new Expr(Expr.Kind.UNION, null, left, right));
+    }
+
+    private static boolean isUnionOperand(Expr u, Expr e) {
+        return u.getKind() == Expr.Kind.UNION && (u.getLeft() == e || u
+                .getRight() == e);
+    }
+
+    /**
+     * create a kleene star
+     * @param e operand
+     * @return e*
+     */
+    public Expr star(Expr e) {
+        if (e == Expr.EPSILON)
+            return e;
+        if (e.getKind().isPostfix())
+            return star(e.getLeft());
+        return intern(new Expr(Expr.Kind.STAR, null, e, null));
+    }
+
+    /**
+     * create a one-or-more repetition
+     * @param e operand
+     * @return e+
+     */
+    public Expr plus(Expr e) {
+        if (e == Expr.EPSILON || e.getKind() == Expr.Kind.PLUS || e.getKind()
+                == Expr.Kind.STAR)
+            return e;
+        if (e.getKind() == Expr.Kind.OPT)
+            return star(e.getLeft());
+        return intern(new Expr(Expr.Kind.PLUS, null, e, null));
+    }
+
+    /**
+     * create an option
+     * @param e operand
+     * @return e?
+     */
+    public Expr opt(Expr e) {
+        if (e.isNullable())
+            return e;
+        if (e.getKind() == Expr.Kind.PLUS)
+            return star(e.getLeft());
+        return intern(new Expr(Expr.Kind.OPT, null, e, null));
+    }
+
+    /**
+     * @return number of distinct expressions created so far
+     */
+    public int size() {
+        return pool.size();
+    }
+
+    /**
+     * forget all expressions created so far; expressions that are still
+     * referenced stay valid but are no longer shared with new ones
+     */
+    public void clear() {
+        pool.clear();
+    }
+}
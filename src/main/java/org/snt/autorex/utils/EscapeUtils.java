@@ -26,22 +26,37 @@
 
 package org.snt.autorex.utils;
 
-import java.util.Set;
-import java.util.stream.Stream;
-
-import static java.util.stream.Collectors.toSet;
+import java.io.IOException;
 
 /**
  * escaping helper class
  */
 public final class EscapeUtils {
 
-    private static final Set<Character> SPECIAL = Stream.of('+', '{', '}', '(', ')', '[', ']', '&', '^',
-            '-', '?', '*', '\"', '$', '<', '>', '.', '|', '#').collect(toSet());
+    private static final char [] SPECIAL_CHARS = {'+', '{', '}', '(', ')',
+            '[', ']', '&', '^', '-', '?', '*', '\"', '$', '<', '>', '.', '|',
+            '#'};
+
+    // lookup table for the ASCII range; all special characters are ASCII
+    private static final boolean [] SPECIAL = new boolean[128];
+
+    static {
+        for (char c : SPECIAL_CHARS) {
+            SPECIAL[c] = true;
+        }
+    }
 
     private EscapeUtils() {
     }
 
+    /**
+     * @param c character
+     * @return true if c has to be escaped
+     */
+    public static boolean isSpecial(char c) {
+        return c < SPECIAL.length && SPECIAL[c];
+    }
+
     /**
      * escape special character in a string with a backslash
      *
@@ -52,17 +67,63 @@ public final class EscapeUtils {
         if (s == null)
             return "";
 
-        StringBuilder out = new StringBuilder();
-        for (char c : s.toCharArray()) {
-            if (SPECIAL.contains(c)) {
-                out.append("\\").append(c);
-            } else {
-                out.append(c);
-            }
+        int i = 0;
+        while (i < s.length() && !isSpecial(s.charAt(i))) {
+            i++;
         }
+        if (i == s.length())
+            return s;
+
+        StringBuilder out = new StringBuilder(s.length() + 8);
+        out.append(s, 0, i);
+        appendEscaped(out, s.subSequence(i, s.length()));
         return out.toString();
     }
 
+    /**
+     * append a character to out and escape it if necessary
+     *
+     * @param out the builder to append to
+     * @param c character
+     */
+    public static void appendEscaped(StringBuilder out, char c) {
+        if (isSpecial(c))
+            out.append('\\');
+        out.append(c);
+    }
+
+    /**
+     * append a character sequence to out and escape special characters
+     *
+     * @param out the builder to append to
+     * @param s characters to append
+     */
+    public static void appendEscaped(StringBuilder out, CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            appendEscaped(out, s.charAt(i));
+        }
+    }
+
+    /**
+     * append a character sequence to out and escape special characters
+     *
+     * @param out the appendable to append to
+     * @param s characters to append
+     * @param <A> type of the appendable
+     * @return out
+     * @throws IOException if out throws an IOException
+     */
+    public static <A extends Appendable> A appendEscaped(A out, CharSequence
+            s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (isSpecial(c))
+                out.append('\\');
+            out.append(c);
+        }
+        return out;
+    }
+
     /**
      * unescape special character in a string
      *
@@ -73,12 +134,15 @@ public final class EscapeUtils {
         if (s == null)
             return "";
 
-        StringBuilder out = new StringBuilder();
+        if (s.indexOf('\\') < 0)
+            return s;
+
+        StringBuilder out = new StringBuilder(s.length());
         char pred = ' ';
-        for (char c : s.toCharArray()) {
-            if (pred == '\\' && SPECIAL.contains(c)) {
-                out.deleteCharAt(out.length() - 1);
-                out.append(c);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (pred == '\\' && isSpecial(c)) {
+                out.setCharAt(out.length() - 1, c);
             } else {
                 out.append(c);
             }
@@ -86,4 +150,4 @@ public final class EscapeUtils {
         }
         return out.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.utils;
+
+import java.util.Arrays;
+
+/**
+ * an open-addressing hash map with primitive integer keys; null values are
+ * not permitted
+ *
+ * @param <V> class of the values
+ */
+public final class IntObjectMap<V> {
+
+    private int[] keys;
+    private Object[] vals;
+    private int size;
+    private int mask;
+
+    public IntObjectMap() {
+        this(4);
+    }
+
+    public IntObjectMap(int capacity) {
+        int cap = 4;
+        while (cap < capacity * 2) {
+            cap <<= 1;
+        }
+        keys = new int[cap];
+        vals = new Object[cap];
+        mask = cap - 1;
+        size = 0;
+    }
+
+    /**
+     * create a copy of another map
+     * @param other the map to copy
+     */
+    public IntObjectMap(IntObjectMap<V> other) {
+        keys = other.keys.clone();
+        vals = other.vals.clone();
+        mask = other.mask;
+        size = other.size;
+    }
+
+    private int slot(int k) {
+        int h = k * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int k) {
+        for (int i = slot(k); vals[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == k) {
+                return (V) vals[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(int k) {
+        return get(k) != null;
+    }
+
+    /**
+     * associate k with v
+     * @param k key
+     * @param v value
+     * @return the previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int k, V v) {
+        assert v != null;
+        int i = slot(k);
+        for (; vals[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == k) {
+                V old = (V) vals[i];
+                vals[i] = v;
+                return old;
+            }
+        }
+        keys[i] = k;
+        vals[i] = v;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * remove k from the map -- uses backward shifting so that no tombstones
+     * are needed
+     * @param k key
+     * @return the removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int k) {
+        int i = slot(k);
+        for (; vals[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == k) {
+                break;
+            }
+        }
+        if (vals[i] == null) {
+            return null;
+        }
+        V old = (V) vals[i];
+        size--;
+        int gap = i;
+        for (int j = (gap + 1) & mask; vals[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // move j into the gap if its home slot is not within (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                vals[gap] = vals[j];
+                gap = j;
+            }
+        }
+        vals[gap] = null;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(vals, null);
+        size = 0;
+    }
+
+    /**
+     * add all keys of this map to the given list
+     * @param out the list to be filled
+     */
+    public void keys(IntList out) {
+        for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null) {
+                out.add(keys[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        int[] okeys = keys;
+        Object[] ovals = vals;
+        keys = new int[okeys.length << 1];
+        vals = new Object[ovals.length << 1];
+        mask = keys.length - 1;
+        for (int i = 0; i < okeys.length; i++) {
+            if (ovals[i] != null) {
+                int j = slot(okeys[i]);
+                while (vals[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = okeys[i];
+                vals[j] = ovals[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex.utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of characters that is represented as a sorted list of
+ * disjoint, non-adjacent intervals.
+ */
+public final class IntervalSet {
+
+    public static final IntervalSet EMPTY = new IntervalSet(new char[0]);
+
+    // min0, max0, min1, max1, ...
+    private final char [] bounds;
+
+    private IntervalSet(char [] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * @param min lower bound (inclusive)
+     * @param max upper bound (inclusive)
+     * @return the set that contains all characters from min to max
+     */
+    public static IntervalSet of(char min, char max) {
+        if (min > max)
+            throw new IllegalArgumentException("empty interval");
+        return new IntervalSet(new char[]{min, max});
+    }
+
+    /**
+     * @return number of intervals
+     */
+    public int size() {
+        return bounds.length / 2;
+    }
+
+    public boolean isEmpty() {
+        return bounds.length == 0;
+    }
+
+    public char getMin(int i) {
+        return bounds[2 * i];
+    }
+
+    public char getMax(int i) {
+        return bounds[2 * i + 1];
+    }
+
+    /**
+     * @return true if this set contains exactly one character
+     */
+    public boolean isSingleChar() {
+        return bounds.length == 2 && bounds[0] == bounds[1];
+    }
+
+    public boolean contains(char c) {
+        int lo = 0;
+        int hi = size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c < getMin(mid)) {
+                hi = mid - 1;
+            } else if (c > getMax(mid)) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param o another interval set
+     * @return the union of this set and o
+     */
+    public IntervalSet union(IntervalSet o) {
+        if (o.isEmpty())
+            return this;
+        if (isEmpty())
+            return o;
+        Builder b = new Builder();
+        b.addAll(this);
+        b.addAll(o);
+        return b.build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IntervalSet && Arrays.equals(bounds,
+                ((IntervalSet) o).bounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bounds);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0)
+                sb.append(",");
+            sb.append((int) getMin(i)).append("-").append((int) getMax(i));
+        }
+        return sb.append("}").toString();
+    }
+
+    /**
+     * Collects intervals in arbitrary order; overlapping and adjacent
+     * intervals are merged by {@link #build()}. A builder can be reused
+     * after calling {@link #clear()}.
+     */
+    public static final class Builder {
+
+        // every interval is packed into one int as (min << 16) | max; the
+        // sign bit is flipped so that signed order equals unsigned order
+        private int [] packed = new int[4];
+        private int n = 0;
+
+        public Builder add(char min, char max) {
+            if (min > max)
+                throw new IllegalArgumentException("empty interval");
+            if (n == packed.length)
+                packed = Arrays.copyOf(packed, 2 * n);
+            packed[n++] = ((min << 16) | max) ^ Integer.MIN_VALUE;
+            return this;
+        }
+
+        public Builder addAll(IntervalSet s) {
+            for (int i = 0; i < s.size(); i++) {
+                add(s.getMin(i), s.getMax(i));
+            }
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return n == 0;
+        }
+
+        public void clear() {
+            n = 0;
+        }
+
+        public IntervalSet build() {
+            if (n == 0)
+                return EMPTY;
+            // sorting the packed ints sorts by min first
+            Arrays.sort(packed, 0, n);
+            char [] out = new char[2 * n];
+            int k = 0;
+            int min = (packed[0] ^ Integer.MIN_VALUE) >>> 16;
+            int max = packed[0] & 0xFFFF;
+            for (int i = 1; i < n; i++) {
+                int lo = (packed[i] ^ Integer.MIN_VALUE) >>> 16;
+                int hi = packed[i] & 0xFFFF;
+                if (lo <= max + 1) {
+                    max = Math.max(max, hi);
+                } else {
+                    out[k++] = (char) min;
+                    out[k++] = (char) max;
+                    min = lo;
+                    max = hi;
+                }
+            }
+            out[k++] = (char) min;
+            out[k++] = (char) max;
+            return new IntervalSet(k == out.length ? out : Arrays.copyOf
+                    (out, k));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class TestAutomatonCodec {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestAutomatonCodec.class);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String [] REXPS = {"abc", "(ab|cd)*e+", "[a-z0-9]" +
+            "{1,3}(x|y)*", "(a|b)*a(a|b){2}"};
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (String rexp : REXPS) {
+            Automaton a = new RegExp(rexp).toAutomaton();
+            Automaton sub = Autorex.getSubstringAutomaton(a);
+            for (Automaton x : new Automaton[]{a, sub}) {
+                int states = x.getNumberOfStates();
+                byte [] enc = AutomatonCodec.INSTANCE.encode(x);
+                Automaton y = AutomatonCodec.INSTANCE.decode(ByteBuffer.wrap
+                        (enc));
+                Assert.assertEquals(states, x.getNumberOfStates());
+                Assert.assertEquals(x.isDeterministic(), y.isDeterministic());
+                Assert.assertEquals(states, y.getNumberOfStates());
+                Assert.assertTrue(x.clone().equals(y.clone()));
+            }
+        }
+
+        // singleton automata are not expanded
+        Automaton s = Automaton.makeString("hello");
+        Automaton t = AutomatonCodec.INSTANCE.decode(ByteBuffer.wrap
+                (AutomatonCodec.INSTANCE.encode(s)));
+        Assert.assertEquals("hello", t.getSingleton());
+
+        Automaton a = Autorex.getSubstringAutomaton(new RegExp("[a-z]+" +
+                "(foo|bar)[0-9]*").toAutomaton());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+            oos.writeObject(a);
+        }
+        int size = AutomatonCodec.INSTANCE.encode(a).length;
+        LOGGER.debug("binary {} serialized {}", size, bos.size());
+        Assert.assertTrue(size < bos.size());
+    }
+
+    @Test
+    public void testGnfa() {
+        for (String rexp : REXPS) {
+            Automaton a = new RegExp(rexp).toAutomaton();
+            byte [] enc = AutomatonCodec.INSTANCE.encode(a);
+            Gnfa g = AutomatonCodec.INSTANCE.decodeGnfa(ByteBuffer.wrap(enc),
+                    Autorex.DEFAULT_TRANSLATOR);
+            Gnfa h = Converter.INSTANCE.getGnfaFromAutomaton(a);
+            Assert.assertEquals(h.vertexSet().size(), g.vertexSet().size());
+            Assert.assertEquals(h.edgeSet().size(), g.edgeSet().size());
+            Assert.assertEquals(StateEliminator.INSTANCE.eliminate(h),
+                    StateEliminator.INSTANCE.eliminate(g));
+        }
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        Path p = tmp.newFile().toPath();
+        try (FileChannel fc = FileChannel.open(p, StandardOpenOption.WRITE)) {
+            for (String rexp : REXPS) {
+                AutomatonCodec.INSTANCE.write(new RegExp(rexp).toAutomaton(),
+                        fc);
+            }
+        }
+        try (FileChannel fc = FileChannel.open(p, StandardOpenOption.READ)) {
+            for (String rexp : REXPS) {
+                Automaton a = AutomatonCodec.INSTANCE.read(fc);
+                Assert.assertTrue(a.equals(new RegExp(rexp).toAutomaton()));
+            }
+            Assert.assertEquals(fc.size(), fc.position());
+        }
+    }
+
+    @Test
+    public void testMalformed() {
+        byte [] enc = AutomatonCodec.INSTANCE.encode(new RegExp("(ab|cd)*")
+                .toAutomaton());
+        for (int len : new int[]{0, 5, enc.length - 1}) {
+            try {
+                AutomatonCodec.INSTANCE.decode(ByteBuffer.wrap(enc, 0, len));
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                LOGGER.debug(e.getMessage());
+            }
+        }
+    }
+}
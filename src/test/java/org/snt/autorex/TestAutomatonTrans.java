@@ -166,4 +166,34 @@ public class TestAutomatonTrans {
             Assert.assertFalse(len.auto.run(m));
         }
     }
+
+    @Test
+    public void testPipeline() {
+        String s = "hello my name is Alice";
+        Automaton a = new RegExp(s).toAutomaton();
+        int states = a.getNumberOfStates();
+
+        Automaton chained = Autorex.getSubstringAutomaton(Autorex
+                .getCamelCaseAutomaton(a));
+        Automaton fused = AutomatonPipeline.of(a).camelCase().substring()
+                .toAutomaton();
+        Assert.assertEquals(states, a.getNumberOfStates());
+        Assert.assertTrue(fused.isDeterministic());
+        Assert.assertTrue(fused.run("NAME IS a"));
+        Assert.assertTrue(chained.equals(fused));
+
+        Automaton sfx = AutomatonPipeline.of(a).suffix().len().toAutomaton();
+        Assert.assertTrue(sfx.run("abcde"));
+        Assert.assertFalse(sfx.run(s + "x"));
+
+        AutomatonPipeline p = AutomatonPipeline.of(a).substring();
+        String rexp = p.toRegex();
+        Assert.assertTrue(new RegExp(rexp).toAutomaton().run("name"));
+        try {
+            p.suffix();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            LOGGER.debug(e.getMessage());
+        }
+    }
 }
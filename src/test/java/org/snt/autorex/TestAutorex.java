@@ -33,6 +33,12 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
 
 public class TestAutorex {
 
@@ -76,4 +82,28 @@ public class TestAutorex {
 
         Assert.assertTrue(ccas.run(s.toUpperCase()));
     }
+
+    @Test
+    public void testWriteRegex() throws IOException {
+        Automaton a = new RegExp("(ab|c\u00e4)*d?").toAutomaton();
+        ConversionOptions opts = new ConversionOptions();
+
+        StringWriter sw = new StringWriter();
+        Autorex.writeRegexFromAutomaton(a, sw);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Autorex.writeRegexFromAutomaton(a, Autorex.DEFAULT_TRANSLATOR,
+                opts, bos);
+
+        ByteArrayOutputStream cos = new ByteArrayOutputStream();
+        Autorex.writeRegexFromAutomaton(a, Autorex.DEFAULT_TRANSLATOR,
+                opts, Channels.newChannel(cos));
+
+        for (String rex : new String[]{sw.toString(), new String(bos
+                .toByteArray(), StandardCharsets.UTF_8), new String(cos
+                .toByteArray(), StandardCharsets.UTF_8)}) {
+            LOGGER.info("rex {}", rex);
+            Assert.assertTrue(new RegExp(rex).toAutomaton().equals(a));
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TestBatchConverter {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestBatchConverter.class);
+
+    private static Automaton auto(int i) {
+        return new RegExp("(a|b)*a(a|b){" + (i % 4) + "}x" + i).toAutomaton();
+    }
+
+    @Test
+    public void testOrdered() {
+        ExecutorService ex = Executors.newFixedThreadPool(3);
+        try {
+            List<Automaton> autos = IntStream.range(0, 40).mapToObj
+                    (TestBatchConverter::auto).collect(Collectors.toList());
+            List<String> res = new BatchConverter(ex).convertAll(autos);
+            Assert.assertEquals(autos.size(), res.size());
+            for (int i = 0; i < autos.size(); i++) {
+                Assert.assertTrue(new RegExp(res.get(i)).toAutomaton()
+                        .equals(autos.get(i)));
+            }
+        } finally {
+            ex.shutdown();
+        }
+    }
+
+    @Test
+    public void testAsCompleted() {
+        ExecutorService ex = Executors.newFixedThreadPool(3);
+        AtomicInteger translators = new AtomicInteger(0);
+        AtomicInteger pulled = new AtomicInteger(0);
+        int window = 4;
+        try {
+            BatchConverter bc = new BatchConverter(ex, new ConversionOptions
+                    ().setMaxEdgeCount(30), () -> {
+                translators.incrementAndGet();
+                return new DefaultLabelTranslator();
+            }, window);
+
+            Iterator<BatchResult> iter = bc.asCompleted(IntStream.range(0,
+                    100).mapToObj(i -> {
+                pulled.incrementAndGet();
+                return auto(i);
+            }).iterator());
+
+            Set<Long> seen = new HashSet<>();
+            List<BatchResult> failed = new ArrayList<>();
+            while (iter.hasNext()) {
+                // results are buffered in a bounded window
+                Assert.assertTrue(pulled.get() - seen.size() <= window);
+                BatchResult r = iter.next();
+                Assert.assertTrue(seen.add(r.getIndex()));
+                if (!r.isSuccess())
+                    failed.add(r);
+            }
+            Assert.assertEquals(100, seen.size());
+            Assert.assertTrue(translators.get() <= 3);
+            // the larger cases exceed the edge limit
+            Assert.assertFalse(failed.isEmpty());
+            for (BatchResult r : failed) {
+                Assert.assertTrue(r.getError() instanceof
+                        ConversionAbortedException);
+                Assert.assertNotEquals(0, r.getIndex() % 4);
+            }
+        } finally {
+            ex.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkerReuse() {
+        AtomicInteger translators = new AtomicInteger(0);
+        AtomicInteger threads = new AtomicInteger(0);
+        // every conversion runs on a fresh thread
+        BatchConverter bc = new BatchConverter(r -> {
+            threads.incrementAndGet();
+            new Thread(r).start();
+        }, new ConversionOptions(), () -> {
+            translators.incrementAndGet();
+            return new DefaultLabelTranslator();
+        }, 2);
+
+        List<Automaton> autos = IntStream.range(0, 20).mapToObj
+                (TestBatchConverter::auto).collect(Collectors.toList());
+        Assert.assertEquals(autos.size(), bc.convertAll(autos).size());
+        Assert.assertEquals(autos.size(), bc.convertAll(autos).size());
+        Assert.assertEquals(40, threads.get());
+        // workers are not bound to threads
+        Assert.assertTrue(translators.get() <= 2);
+    }
+
+    @Test
+    public void testErrors() {
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        try {
+            BatchConverter bc = new BatchConverter(ex, new ConversionOptions
+                    (), () -> new DefaultLabelTranslator() {
+                @Override
+                public void appendRange(char min, char max, StringBuilder sb) {
+                    if (min == 'y')
+                        throw new AssertionError("y");
+                    super.appendRange(min, max, sb);
+                }
+            }, 4);
+
+            List<Automaton> autos = IntStream.range(0, 10).mapToObj(i -> new
+                    RegExp(i % 3 == 0 ? "y" + i : "x" + i).toAutomaton())
+                    .collect(Collectors.toList());
+            Iterator<BatchResult> iter = bc.ordered(autos.iterator());
+            int failed = 0;
+            while (iter.hasNext()) {
+                BatchResult r = iter.next();
+                // errors are recorded per item
+                Assert.assertEquals(r.getIndex() % 3 != 0, r.isSuccess());
+                if (!r.isSuccess()) {
+                    Assert.assertTrue(r.getError() instanceof AssertionError);
+                    failed++;
+                }
+            }
+            Assert.assertEquals(4, failed);
+        } finally {
+            ex.shutdown();
+        }
+    }
+}
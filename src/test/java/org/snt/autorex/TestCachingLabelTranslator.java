@@ -0,0 +1,89 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.snt.autorex.utils.IntervalSet;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCachingLabelTranslator {
+
+    private static class Counting extends DefaultLabelTranslator {
+        private final AtomicInteger calls = new AtomicInteger(0);
+
+        @Override
+        public String getTransitionString(Transition t) {
+            calls.incrementAndGet();
+            return super.getTransitionString(t);
+        }
+    }
+
+    @Test
+    public void testCache() {
+        Counting delegate = new Counting();
+        LabelTranslator ltrans = new CachingLabelTranslator(delegate);
+        State s = new State();
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("\\.", ltrans.getTransitionString(new
+                    Transition('.', s)));
+            Assert.assertEquals("[a-f]", ltrans.getTransitionString(new
+                    Transition('a', 'f', s)));
+            Assert.assertEquals("\u00e9", ltrans.getTransitionString(new
+                    Transition('\u00e9', s)));
+            Assert.assertEquals("[a-f]", ltrans.getCharClassString
+                    (IntervalSet.of('a', 'f')));
+        }
+        Assert.assertEquals(3, delegate.calls.get());
+        Assert.assertSame(ltrans.getTransitionString(new Transition('a',
+                'f', s)), ltrans.getTransitionString(new Transition('a', 'f',
+                s)));
+
+        Assert.assertEquals("[acx-z]", ltrans.getCharClassString(new
+                IntervalSet.Builder().add('a', 'a').add('c', 'c').add('x', 'z')
+                .build()));
+    }
+
+    @Test
+    public void testConversion() {
+        Automaton a = new RegExp("(abc)+[0-9]{1,3}[dg]*").toAutomaton();
+        Counting delegate = new Counting();
+        String s0 = Autorex.getRegexFromAutomaton(a, new
+                CachingLabelTranslator(delegate));
+        Assert.assertEquals(Autorex.getRegexFromAutomaton(a, new
+                DefaultLabelTranslator()), s0);
+        Assert.assertTrue(new RegExp(s0).toAutomaton().equals(a));
+        Assert.assertEquals(Autorex.DEFAULT_TRANSLATOR, new
+                CachingLabelTranslator(new DefaultLabelTranslator()));
+    }
+}
@@ -30,6 +30,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snt.autorex.utils.EscapeUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
 
 public class TestCharUtils {
     @Test
@@ -50,4 +54,27 @@ public class TestCharUtils {
             Assert.assertFalse(CharUtils.isDigit(c));
         }
     }
+
+    @Test
+    public void testEscape() throws IOException {
+        String s = "abc";
+        Assert.assertSame(s, EscapeUtils.escapeSpecialCharacters(s));
+        Assert.assertEquals("a\\.b\\|c\\(", EscapeUtils
+                .escapeSpecialCharacters("a.b|c("));
+        Assert.assertEquals("a.b|c(", EscapeUtils.unescapeSpecialCharacters
+                (EscapeUtils.escapeSpecialCharacters("a.b|c(")));
+
+        StringBuilder sb = new StringBuilder("x");
+        EscapeUtils.appendEscaped(sb, '*');
+        EscapeUtils.appendEscaped(sb, "y+");
+        Assert.assertEquals("x\\*y\\+", sb.toString());
+
+        Assert.assertEquals("\\[\\]", EscapeUtils.appendEscaped(new
+                StringWriter(), "[]").toString());
+
+        sb.setLength(0);
+        new DefaultLabelTranslator().appendRange('a', 'c', sb);
+        new DefaultLabelTranslator().appendRange('?', '?', sb);
+        Assert.assertEquals("[a-c]\\?", sb.toString());
+    }
 }
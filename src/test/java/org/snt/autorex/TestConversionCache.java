@@ -0,0 +1,502 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.BasicOperations;
+import dk.brics.automaton.RegExp;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.cache.CacheStats;
+import org.snt.autorex.cache.ConversionCache;
+import org.snt.autorex.cache.Fingerprint;
+import org.snt.autorex.cache.PersistentConversionCache;
+import org.snt.autorex.utils.IntervalSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestConversionCache {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestConversionCache.class);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static Automaton auto(String rexp) {
+        return new RegExp(rexp).toAutomaton();
+    }
+
+    @Test
+    public void testFingerprint() {
+        Assert.assertEquals(Fingerprint.of(auto("ab|ac")), Fingerprint.of
+                (auto("a(b|c)")));
+        Assert.assertEquals(Fingerprint.of(auto("(a|b)*")), Fingerprint.of
+                (auto("(a*b*)*")));
+        Assert.assertNotEquals(Fingerprint.of(auto("ab|ac")), Fingerprint
+                .of(auto("ab|ad")));
+        Assert.assertNotEquals(Fingerprint.of(auto("a*")), Fingerprint.of
+                (auto("a+")));
+        Assert.assertNotEquals(Fingerprint.of(auto("[a-c]")), Fingerprint
+                .of(auto("[a-d]")));
+
+        // singletons are fingerprinted without being expanded
+        Automaton s = BasicAutomata.makeString("abc");
+        Fingerprint f = Fingerprint.of(s);
+        Assert.assertEquals("abc", s.getSingleton());
+        s.expandSingleton();
+        Assert.assertEquals(f, Fingerprint.of(s));
+    }
+
+    @Test
+    public void testMinimizedKey() {
+        ConversionCache cache = new ConversionCache(1024);
+        ConversionOptions opts = new ConversionOptions().setCache(cache)
+                .setMinimize(true);
+
+        // a non-minimal automaton hits the entry of its minimal automaton
+        Automaton a = auto("ab|ac");
+        a.expandSingleton();
+        Automaton b = auto("a(b|c)").union(auto("ab"));
+        Assert.assertNotEquals(Fingerprint.of(a), Fingerprint.of(b));
+        Autorex.getRegexFromAutomaton(a, opts);
+        Autorex.getRegexFromAutomaton(b, opts);
+        Assert.assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    public void testFingerprintCost() {
+        Automaton[] words = new Automaton[2000];
+        for (int i = 0; i < words.length; i++)
+            words[i] = BasicAutomata.makeString("w" + i
+                    + "x" + (i * 7919));
+        Automaton a = BasicOperations.union(Arrays
+                .asList(words));
+        a.determinize();
+
+        ConversionCache cache = new ConversionCache(1 << 20);
+        ConversionOptions opts = new ConversionOptions().setCache(cache);
+
+        long t = System.nanoTime();
+        String rex = Autorex.getRegexFromAutomaton(a, opts);
+        long convert = System.nanoTime() - t;
+
+        // the key of a hit costs a fraction of the conversion
+        long hit = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            t = System.nanoTime();
+            Assert.assertEquals(rex, Autorex.getRegexFromAutomaton(a, opts));
+            hit = Math.min(hit, System.nanoTime() - t);
+        }
+        LOGGER.debug("convert {} ms hit {} ms", convert / 1000000, hit /
+                1000000);
+        Assert.assertEquals(5, cache.getStats().getHits());
+        Assert.assertTrue(hit < convert);
+    }
+
+    @Test
+    public void testHit() {
+        ConversionCache cache = new ConversionCache(1024);
+        ConversionOptions opts = new ConversionOptions().setCache(cache);
+
+        String r1 = Autorex.getRegexFromAutomaton(auto("ab|ac"), opts);
+        String r2 = Autorex.getRegexFromAutomaton(auto("a(b|c)"), opts);
+        Assert.assertEquals(r1, r2);
+
+        CacheStats stats = cache.getStats();
+        LOGGER.debug(stats.toString());
+        Assert.assertEquals(1, stats.getHits());
+        Assert.assertEquals(1, stats.getMisses());
+
+        // a different heuristic is a different key
+        Autorex.getRegexFromAutomaton(auto("ab|ac"), opts.setOrder
+                (EliminationStrategy.DEGREE));
+        Assert.assertEquals(2, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void testEviction() {
+        ConversionCache cache = new ConversionCache(10);
+        ConversionOptions opts = new ConversionOptions().setCache(cache);
+
+        Autorex.getRegexFromAutomaton(auto("abcde"), opts);
+        Autorex.getRegexFromAutomaton(auto("fghij"), opts);
+        Autorex.getRegexFromAutomaton(auto("klmno"), opts);
+
+        CacheStats stats = cache.getStats();
+        Assert.assertEquals(1, stats.getEvictions());
+        Assert.assertEquals(2, stats.getSize());
+        Assert.assertEquals(10, stats.getWeight());
+
+        // too large to be cached at all
+        Autorex.getRegexFromAutomaton(auto("abcdefghijk"), opts);
+        Assert.assertEquals(2, cache.getStats().getSize());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        ConversionCache cache = new ConversionCache(1024);
+        ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of(auto
+                ("abc")));
+        AtomicInteger calls = new AtomicInteger(0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> f1 = ex.submit(() -> cache.get(k, () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "abc";
+            }));
+            started.await();
+            Future<String> f2 = ex.submit(() -> cache.get(k, () -> {
+                calls.incrementAndGet();
+                return "abc";
+            }));
+            while (cache.getStats().getCoalesced() == 0 && !f2.isDone())
+                Thread.sleep(1);
+            release.countDown();
+            Assert.assertEquals("abc", f1.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals("abc", f2.get(10, TimeUnit.SECONDS));
+        } finally {
+            ex.shutdownNow();
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, cache.getStats().getCoalesced());
+    }
+
+    /**
+     * start a conversion of k that blocks until release is counted down and
+     * then yields the result of r
+     */
+    private static Future<String> lead(ExecutorService ex, ConversionCache
+            cache, ConversionCache.Key k, CountDownLatch release,
+                                       Supplier<String> r) throws
+            InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<String> ret = ex.submit(() -> cache.get(k, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return r.get();
+        }));
+        started.await();
+        return ret;
+    }
+
+    @Test
+    public void testCoalescingFailures() throws Exception {
+        ConversionCache cache = new ConversionCache(1024);
+        ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of(auto
+                ("abc")), "k");
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        try {
+            // errors are passed on to the waiting threads
+            CountDownLatch release = new CountDownLatch(1);
+            Future<String> f1 = lead(ex, cache, k, release, () -> {
+                throw new StackOverflowError();
+            });
+            Future<String> f2 = ex.submit(() -> cache.get(k, () -> "abc"));
+            while (cache.getStats().getCoalesced() == 0 && !f2.isDone())
+                Thread.sleep(1);
+            release.countDown();
+            for (Future<String> f : Arrays.asList(f1, f2)) {
+                try {
+                    f.get(10, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof
+                            StackOverflowError);
+                }
+            }
+
+            // an aborted conversion is retried by a waiting thread
+            CountDownLatch release2 = new CountDownLatch(1);
+            f1 = lead(ex, cache, k, release2, () -> {
+                throw new ConversionAbortedException(ConversionAbortedException
+                        .Reason.CANCELLED, 0L, 0, 0, 0L, 0L);
+            });
+            f2 = ex.submit(() -> cache.get(k, () -> "abc"));
+            while (cache.getStats().getCoalesced() == 1 && !f2.isDone())
+                Thread.sleep(1);
+            release2.countDown();
+            try {
+                f1.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof
+                        ConversionAbortedException);
+            }
+            Assert.assertEquals("abc", f2.get(10, TimeUnit.SECONDS));
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitingBudget() throws Exception {
+        ConversionCache cache = new ConversionCache(1024);
+        Automaton a = auto("ab|ac");
+        ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of(a),
+                Autorex.DEFAULT_TRANSLATOR, ConversionEngine
+                .STATE_ELIMINATION, EliminationStrategy.WEIGHT, false, null);
+        ExecutorService ex = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            Future<String> f1 = lead(ex, cache, k, release, () -> "a[bc]");
+
+            // the waiting caller observes its own cancellation token
+            CancellationToken token = new CancellationToken();
+            Future<String> f2 = ex.submit(() -> Autorex
+                    .getRegexFromAutomaton(a, new ConversionOptions()
+                            .setCache(cache).setCancellationToken(token)));
+            while (cache.getStats().getCoalesced() == 0 && !f2.isDone())
+                Thread.sleep(1);
+            token.cancel();
+            try {
+                f2.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof
+                        ConversionAbortedException);
+            }
+            Assert.assertFalse(f1.isDone());
+            release.countDown();
+            Assert.assertEquals("a[bc]", f1.get(10, TimeUnit.SECONDS));
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPersistent() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        String r1;
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 1024, 1 << 16)) {
+            r1 = Autorex.getRegexFromAutomaton(auto("ab|ac"), new
+                    ConversionOptions().setCache(cache));
+            Assert.assertEquals(1, cache.size());
+        }
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 1024, 1 << 16)) {
+            ConversionOptions opts = new ConversionOptions().setCache(cache);
+            Assert.assertEquals(r1, Autorex.getRegexFromAutomaton(auto
+                    ("a(b|c)"), opts));
+            Assert.assertEquals(1, cache.getDiskHits());
+            Assert.assertEquals(1, cache.getStats().getHits());
+
+            ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of
+                    (auto("x")), "k");
+            Assert.assertNull(cache.lookupBytes(k));
+            cache.store(k, "x");
+            ByteBuffer b = cache.lookupBytes(k);
+            Assert.assertEquals("x", StandardCharsets.UTF_8.decode(b)
+                    .toString());
+
+            // the directory is locked while the cache is open
+            try {
+                new PersistentConversionCache(dir, 1024, 1 << 16).close();
+                Assert.fail();
+            } catch (IOException e) {
+                LOGGER.debug(e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 0, 1024)) {
+            for (int i = 0; i < 200; i++) {
+                ConversionCache.Key k = new ConversionCache.Key(Fingerprint
+                        .of(auto("a")), i);
+                cache.store(k, "value" + i);
+                Assert.assertTrue(cache.getDataBytes() <= 1024);
+            }
+            Assert.assertTrue(cache.getCompactions() > 0);
+            Assert.assertEquals("value199", cache.lookup(new
+                    ConversionCache.Key(Fingerprint.of(auto("a")), 199)));
+            Assert.assertNull(cache.lookup(new ConversionCache.Key
+                    (Fingerprint.of(auto("a")), 0)));
+
+            cache.clear();
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    private static Path file(Path dir, String prefix) throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            List<Path> ps = s.filter(p -> p.getFileName().toString()
+                    .startsWith(prefix)).collect(Collectors.toList());
+            Assert.assertEquals(1, ps.size());
+            return ps.get(0);
+        }
+    }
+
+    @Test
+    public void testGenerations() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 0, 1 << 16)) {
+            ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of
+                    (auto("a")), "k");
+            cache.store(k, "a");
+            ByteBuffer b = cache.lookupBytes(k);
+            Path data = file(dir, "data-");
+            Path index = file(dir, "index-");
+
+            // enough records to grow the index and to compact the data
+            for (int i = 0; i < 3000; i++) {
+                cache.store(new ConversionCache.Key(Fingerprint.of(auto
+                        ("b")), i), "value" + i);
+                if (i == 1000) {
+                    Assert.assertEquals(0, cache.getCompactions());
+                    Assert.assertEquals(data, file(dir, "data-"));
+                    Assert.assertNotEquals(index, file(dir, "index-"));
+                }
+            }
+            Assert.assertTrue(cache.getCompactions() > 0);
+            Assert.assertNotEquals(data, file(dir, "data-"));
+
+            // views stay valid since mapped files are never overwritten
+            Assert.assertEquals("a", StandardCharsets.UTF_8.decode(b)
+                    .toString());
+            try (Stream<Path> s = Files.list(dir)) {
+                Assert.assertEquals(4L, s.count());
+            }
+            file(dir, "index-");
+        }
+    }
+
+    @Test
+    public void testRecovery() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        ConversionCache.Key k = new ConversionCache.Key(Fingerprint.of
+                (auto("a")), "k");
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 0, 1 << 16)) {
+            cache.store(k, "a");
+        }
+        // a torn append after the last committed record
+        try (FileChannel c = FileChannel.open(file(dir, "data-"),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            c.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 0, 1 << 16)) {
+            Assert.assertEquals("a", cache.lookup(k));
+            Assert.assertEquals(41, cache.getDataBytes());
+        }
+        // a lost index is rebuilt from the data file
+        Files.delete(file(dir, "index-"));
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 0, 1 << 16)) {
+            Assert.assertEquals(1, cache.size());
+            Assert.assertEquals("a", cache.lookup(k));
+        }
+    }
+
+    @Test
+    public void testStableId() throws IOException {
+        Fingerprint fp = Fingerprint.of(auto("abc"));
+        Assert.assertEquals(new ConversionCache.Key(fp, Portfolio.defaults(),
+                StateOrder.random(1L)).getStableFingerprint(), new
+                ConversionCache.Key(fp, Portfolio.defaults(), StateOrder
+                .random(1L)).getStableFingerprint());
+        Assert.assertNotEquals(new ConversionCache.Key(fp, StateOrder.random
+                (1L)).getStableFingerprint(), new ConversionCache.Key(fp,
+                StateOrder.random(2L)).getStableFingerprint());
+        Assert.assertNotEquals(new ConversionCache.Key(fp, Portfolio
+                .defaults()).getStableFingerprint(), new ConversionCache.Key
+                (fp, new Portfolio().add("weight", ConversionEngine.KLEENE,
+                        EliminationStrategy.WEIGHT)).getStableFingerprint());
+        Assert.assertNotEquals(new ConversionCache.Key(fp, "1")
+                .getStableFingerprint(), new ConversionCache.Key(fp, 1)
+                .getStableFingerprint());
+
+        // settings that cannot be identified across runs
+        EliminationHeuristic h = info -> 0L;
+        LabelTranslator t = new DefaultLabelTranslator() {
+            @Override
+            public String getCharClassString(IntervalSet set) {
+                return "<" + super.getCharClassString(set) + ">";
+            }
+        };
+        Assert.assertNull(new ConversionCache.Key(fp, h)
+                .getStableFingerprint());
+        Assert.assertNull(new ConversionCache.Key(fp, new
+                CachingLabelTranslator(t)).getStableFingerprint());
+        Assert.assertNull(new ConversionCache.Key(fp, new Portfolio()
+                .addPerGnfa("topo", ConversionEngine.STATE_ELIMINATION,
+                        StateOrder::reverseTopological))
+                .getStableFingerprint());
+
+        // they are only kept in memory
+        Path dir = tmp.newFolder().toPath();
+        ConversionOptions opts = new ConversionOptions().setOrder(h);
+        try (PersistentConversionCache cache = new PersistentConversionCache
+                (dir, 1024, 1 << 16)) {
+            Autorex.getRegexFromAutomaton(auto("ab|ac"), opts.setCache
+                    (cache));
+            Assert.assertEquals(1, cache.getStats().getSize());
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestConversionOptions {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestConversionOptions.class);
+
+    private final Automaton a = new RegExp("(a|b)*a(a|b){4}").toAutomaton();
+
+    private ConversionAbortedException convert(ConversionOptions opts) {
+        try {
+            Autorex.getRegexFromAutomaton(a, opts);
+        } catch (ConversionAbortedException e) {
+            LOGGER.debug(e.getMessage());
+            return e;
+        }
+        Assert.fail("conversion should have been aborted");
+        return null;
+    }
+
+    @Test
+    public void testLimits() {
+        ConversionAbortedException e = convert(new ConversionOptions()
+                .setMaxLabelLength(20));
+        Assert.assertEquals(ConversionAbortedException.Reason.LABEL_LENGTH,
+                e.getReason());
+        Assert.assertTrue(e.getMaxLabelLength() > 20);
+
+        e = convert(new ConversionOptions().setMaxEdgeCount(10));
+        Assert.assertEquals(ConversionAbortedException.Reason.EDGE_COUNT, e
+                .getReason());
+
+        e = convert(new ConversionOptions().setOrder(EliminationStrategy
+                .FIRST).setMaxWallTime(1, TimeUnit.NANOSECONDS));
+        Assert.assertEquals(ConversionAbortedException.Reason.TIMEOUT, e
+                .getReason());
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        e = convert(new ConversionOptions().setCancellationToken(token));
+        Assert.assertEquals(ConversionAbortedException.Reason.CANCELLED, e
+                .getReason());
+        Assert.assertEquals(1, e.getRipSteps());
+    }
+
+    @Test
+    public void testWithinLimits() {
+        ConversionOptions opts = new ConversionOptions()
+                .setMaxLabelLength(1000000)
+                .setMaxEdgeCount(10000)
+                .setMaxWallTime(1, TimeUnit.MINUTES)
+                .setCancellationToken(new CancellationToken());
+        String s = Autorex.getRegexFromAutomaton(a, opts);
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+    }
+
+    @Test
+    public void testMetrics() {
+        EliminationMetrics m = new EliminationMetrics();
+        String rex = Autorex.getRegexFromAutomaton(a, new ConversionOptions()
+                .setListener(m));
+        LOGGER.info("{}", m);
+
+        Assert.assertTrue(new RegExp(rex).toAutomaton().equals(a));
+        Assert.assertEquals(1, m.getConversions());
+        Assert.assertEquals(a.getNumberOfStates(), m.getRipSteps());
+        Assert.assertTrue(m.getCreatedEdges() > 0);
+        Assert.assertTrue(m.getMaxLabelLength() <= rex.length());
+        Assert.assertTrue(m.getPeakEdgeCount() >= a.getNumberOfTransitions());
+        Assert.assertTrue(m.getBlowUp() > 0.0);
+        Assert.assertTrue(m.getPhaseNanos(EliminationListener.Phase.RIP) > 0);
+
+        m.reset();
+        Assert.assertEquals(0, m.getRipSteps());
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.Transition;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Conversions of automata with very long chains of states. Every case runs
+ * on a fresh thread with the default stack size; the heap is limited by
+ * the surefire configuration.
+ */
+public class TestDeepAutomata {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestDeepAutomata.class);
+
+    private static final int DEPTH = 1000000;
+
+    private static String word(int len) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            sb.append((char) ('a' + i % 3));
+        }
+        return sb.toString();
+    }
+
+    private static Automaton chain(String w) {
+        Automaton a = BasicAutomata.makeString(w);
+        a.expandSingleton();
+        return a;
+    }
+
+    private static void run(Runnable r) throws Throwable {
+        AtomicReference<Throwable> err = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                r.run();
+            } catch (Throwable e) {
+                err.set(e);
+            }
+        });
+        t.start();
+        t.join();
+        if (err.get() != null)
+            throw err.get();
+    }
+
+    @Test
+    public void testChain() throws Throwable {
+        String w = word(DEPTH);
+        run(() -> {
+            Assert.assertEquals(w, Autorex.getRegexFromAutomaton(chain(w)));
+            // singletons are converted without expansion
+            Assert.assertEquals(w, Autorex.getRegexFromAutomaton(BasicAutomata
+                    .makeString(w)));
+        });
+    }
+
+    @Test
+    public void testOptionalChain() throws Throwable {
+        String w = word(DEPTH);
+        run(() -> {
+            Automaton a = chain(w);
+            a.getInitialState().setAccept(true);
+            Assert.assertEquals("(" + w + ")?", Autorex
+                    .getRegexFromAutomaton(a));
+        });
+    }
+
+    @Test
+    public void testClassification() throws Throwable {
+        run(() -> {
+            Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(chain(word
+                    (DEPTH)));
+            Classifier.INSTANCE.classify(g);
+            Assert.assertTrue(g.edgeSet().stream().allMatch(e -> e.getProp()
+                    == Transition.Property.TREE));
+        });
+    }
+
+    @Test
+    public void testTransformation() throws Throwable {
+        // the transformations keep several maps per state, a shorter chain
+        // is still far deeper than a recursive traversal could handle
+        int depth = DEPTH / 10;
+        run(() -> {
+            Automaton a = Autorex.getLenAutomaton(chain(word(depth)));
+            Assert.assertTrue(a.run(word(depth).replace('a', 'x')));
+            Assert.assertFalse(a.run(word(depth - 1)));
+        });
+    }
+}
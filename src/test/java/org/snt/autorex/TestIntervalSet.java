@@ -0,0 +1,72 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snt.autorex.utils.IntervalSet;
+
+public class TestIntervalSet {
+    @Test
+    public void testMerge() {
+        IntervalSet s = new IntervalSet.Builder().add('x', 'z').add('a', 'a')
+                .add('d', 'f').add('b', 'b').add('e', 'g').build();
+        Assert.assertEquals(3, s.size());
+        Assert.assertEquals('a', s.getMin(0));
+        Assert.assertEquals('b', s.getMax(0));
+        Assert.assertEquals('d', s.getMin(1));
+        Assert.assertEquals('g', s.getMax(1));
+        Assert.assertEquals('x', s.getMin(2));
+        Assert.assertTrue(s.contains('e'));
+        Assert.assertFalse(s.contains('c'));
+        Assert.assertFalse(s.contains('h'));
+
+        Assert.assertEquals(IntervalSet.of('a', 'z'), s.union(IntervalSet.of
+                ('c', 'c')).union(IntervalSet.of('h', 'w')));
+    }
+
+    @Test
+    public void testUnsigned() {
+        IntervalSet s = new IntervalSet.Builder().add('\uffff', '\uffff')
+                .add('\u0000', '\u8000').add('\u8001', '\ufffe').build();
+        Assert.assertEquals(IntervalSet.of(Character.MIN_VALUE, Character
+                .MAX_VALUE), s);
+    }
+
+    @Test
+    public void testCharClass() {
+        LabelTranslator ltrans = new DefaultLabelTranslator();
+        Assert.assertEquals("[abd-f]", ltrans.getCharClassString(new
+                IntervalSet.Builder().add('d', 'f').add('a', 'b').build()));
+        Assert.assertEquals("[a-c]", ltrans.getCharClassString(IntervalSet
+                .of('a', 'c')));
+        Assert.assertEquals("\\.", ltrans.getCharClassString(IntervalSet
+                .of('.', '.')));
+        Assert.assertEquals("[\\-\\]]", ltrans.getCharClassString(new
+                IntervalSet.Builder().add(']', ']').add('-', '-').build()));
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestPortfolio {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestPortfolio.class);
+
+    @Test
+    public void testPortfolio() {
+        String [] rexps = {"(ab*(bac)*)d+(ay)*", "((ab)c)+d*",
+                "(a|b)*a(a|b){2}", "((abcd)*e(fgh)*)*x(ij(kl)*)+"};
+
+        EliminationMetrics m = new EliminationMetrics();
+        ConversionOptions opts = new ConversionOptions().setPortfolio
+                (Portfolio.defaults().setSlack(1, TimeUnit.SECONDS))
+                .setListener(m);
+
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            String s = Autorex.getRegexFromAutomaton(a, opts);
+            Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+
+            PortfolioResult res = Portfolio.defaults().setSlack(1, TimeUnit
+                    .SECONDS).eliminate(Converter.INSTANCE
+                    .getGnfaFromAutomaton(a), new ConversionOptions());
+            LOGGER.info("{} {}", res.getWinner(), res.getOutcomes());
+            Assert.assertEquals(7, res.getOutcomes().size());
+            for (PortfolioResult.Outcome o : res.getOutcomes()) {
+                Assert.assertEquals(PortfolioResult.Status.COMPLETED, o
+                        .getStatus());
+                Assert.assertTrue(res.getRegex().length() <= o.getLength());
+            }
+        }
+        LOGGER.info("{}", m);
+        Assert.assertEquals(7, m.getStrategies().size());
+        Assert.assertEquals(rexps.length, m.getStrategies().values().stream()
+                .mapToLong(EliminationMetrics.StrategyStats::getWins).sum());
+    }
+
+    @Test
+    public void testReverseTopological() {
+        Automaton a = new RegExp("abc(d|ef)g").toAutomaton();
+        Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        String s = StateEliminator.INSTANCE.eliminate(g, StateOrder
+                .reverseTopological(g));
+        Assert.assertTrue(new RegExp(s).toAutomaton().equals(a));
+    }
+
+    @Test(expected = ConversionAbortedException.class)
+    public void testFailure() {
+        Automaton a = new RegExp("(a|b)*a(a|b){4}").toAutomaton();
+        Autorex.getRegexFromAutomaton(a, new ConversionOptions()
+                .setPortfolio(Portfolio.defaults()).setMaxLabelLength(10));
+    }
+
+    @Test
+    public void testQueuedStrategies() {
+        // the first strategy runs on the calling thread, the others stay
+        // queued until the result has been chosen
+        List<Runnable> queued = new ArrayList<>();
+        AtomicInteger submitted = new AtomicInteger();
+        AtomicInteger copies = new AtomicInteger();
+        Portfolio p = new Portfolio().add("weight", ConversionEngine
+                .STATE_ELIMINATION, EliminationStrategy.WEIGHT).addPerGnfa
+                ("late", ConversionEngine.STATE_ELIMINATION, g -> {
+                    copies.incrementAndGet();
+                    return EliminationStrategy.DEGREE;
+                }).setSlack(0, TimeUnit.NANOSECONDS).setExecutor(r -> {
+                    if (submitted.getAndIncrement() == 0) {
+                        r.run();
+                    } else {
+                        queued.add(r);
+                    }
+                });
+
+        Automaton a = new RegExp("(ab*(bac)*)d+(ay)*").toAutomaton();
+        PortfolioResult res = p.eliminate(Converter.INSTANCE
+                .getGnfaFromAutomaton(a), new ConversionOptions());
+        Assert.assertEquals("weight", res.getWinner());
+        Assert.assertEquals(PortfolioResult.Status.CANCELLED, res
+                .getOutcomes().get(1).getStatus());
+
+        queued.forEach(Runnable::run);
+        Assert.assertEquals(0, copies.get());
+    }
+
+    @Test
+    public void testErrors() {
+        Automaton a = new RegExp("(ab*(bac)*)d+(ay)*").toAutomaton();
+        Portfolio p = new Portfolio().addPerGnfa("first", ConversionEngine
+                .STATE_ELIMINATION, g -> {
+                    throw new IllegalStateException("first");
+                }).addPerGnfa("second", ConversionEngine.STATE_ELIMINATION,
+                g -> {
+                    throw new IllegalStateException("second");
+                });
+        try {
+            p.eliminate(Converter.INSTANCE.getGnfaFromAutomaton(a), new
+                    ConversionOptions());
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // the errors of the other strategies are kept
+            Assert.assertEquals("first", e.getMessage());
+            Assert.assertEquals(1, e.getSuppressed().length);
+            Assert.assertEquals("second", e.getSuppressed()[0].getMessage());
+        }
+
+        // the strategies run in reverse order; the second one cancels the
+        // conversion so that the first one is skipped
+        CancellationToken token = new CancellationToken();
+        List<Runnable> queued = new ArrayList<>();
+        p = new Portfolio().add("skipped", ConversionEngine
+                .STATE_ELIMINATION, EliminationStrategy.WEIGHT).addPerGnfa
+                ("failing", ConversionEngine.STATE_ELIMINATION, g -> {
+                    token.cancel();
+                    throw new IllegalStateException("failing");
+                }).setExecutor(r -> {
+                    queued.add(0, r);
+                    if (queued.size() == 2)
+                        queued.forEach(Runnable::run);
+                });
+        try {
+            p.eliminate(Converter.INSTANCE.getGnfaFromAutomaton(a), new
+                    ConversionOptions().setCancellationToken(token));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("failing", e.getMessage());
+            Assert.assertEquals(0, e.getSuppressed().length);
+        }
+    }
+}
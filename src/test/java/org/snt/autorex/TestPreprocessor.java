@@ -0,0 +1,117 @@
+/**
+ * autorex - fsm state eliminator
+ *
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Julian Thome <julian.thome.de@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ **/
+
+package org.snt.autorex;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicOperations;
+import dk.brics.automaton.RegExp;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestPreprocessor {
+
+    final static Logger LOGGER = LoggerFactory.getLogger(TestPreprocessor.class);
+
+    @Test
+    public void testMinimize() {
+        Automaton a = new RegExp("(abc)+[0-9]{1,3}[dg]*").toAutomaton();
+        Automaton b = new RegExp("(abc)+[0-9]{1,3}x*").toAutomaton();
+        Automaton c = new RegExp("(abc)+[0-9]{1,3}").toAutomaton();
+        Automaton u = BasicOperations.union(a, BasicOperations.union(b, c));
+        int states = u.getNumberOfStates();
+
+        EliminationMetrics m = new EliminationMetrics();
+        String rex = Autorex.getRegexFromAutomaton(u, new ConversionOptions()
+                .setMinimize(true).setListener(m));
+        LOGGER.info("{}", m);
+
+        Assert.assertEquals(states, u.getNumberOfStates());
+        Assert.assertTrue(new RegExp(rex).toAutomaton().equals(u));
+        Assert.assertTrue(m.getRemovedStates() > 0);
+        Assert.assertTrue(m.getPhaseNanos(EliminationListener.Phase
+                .PREPROCESS) > 0);
+    }
+
+    @Test
+    public void testParallelRefinement() {
+        Random rnd = new Random(11L);
+        List<String> words = new ArrayList<>();
+        List<Automaton> autos = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            words.add(RandomStringUtils.random(10, 0, 0, true, false, null,
+                    rnd));
+            autos.add(Automaton.makeString(words.get(i)));
+        }
+        Automaton dict = BasicOperations.union(autos);
+        dict.determinize();
+        Assert.assertTrue(dict.getNumberOfStates() >= Preprocessor
+                .PARALLEL_STATES);
+
+        Automaton min = Preprocessor.INSTANCE.minimize(dict, ForkJoinPool
+                .commonPool());
+        Automaton ref = dict.clone();
+        ref.minimize();
+
+        Assert.assertEquals(ref.getNumberOfStates(), min.getNumberOfStates());
+        for (String w : words) {
+            Assert.assertTrue(min.run(w));
+            Assert.assertFalse(min.run(w.substring(1)));
+        }
+    }
+
+    @Test
+    public void testLongChain() {
+        // a{20000}|zz needs one Moore round per state of the chain
+        Automaton chain = BasicOperations.union(Automaton.makeString
+                (StringUtils.repeat('a', 20000)), Automaton.makeString("zz"));
+        chain.determinize();
+        Assert.assertTrue(chain.getNumberOfStates() >= Preprocessor
+                .PARALLEL_STATES);
+
+        long t = System.nanoTime();
+        Automaton min = Preprocessor.INSTANCE.minimize(chain, ForkJoinPool
+                .commonPool());
+        long ms = (System.nanoTime() - t) / 1000000;
+        LOGGER.info("minimized a chain of {} states in {} ms", chain
+                .getNumberOfStates(), ms);
+
+        Assert.assertEquals(20002, min.getNumberOfStates());
+        Assert.assertTrue(min.run(StringUtils.repeat('a', 20000)));
+        Assert.assertTrue(min.run("zz"));
+        Assert.assertFalse(min.run(StringUtils.repeat('a', 19999)));
+        Assert.assertTrue(ms < 15000);
+    }
+}
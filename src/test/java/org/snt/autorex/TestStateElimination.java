@@ -29,10 +29,17 @@ package org.snt.autorex;
 import dk.brics.automaton.Automaton;
 import dk.brics.automaton.RegExp;
 import dk.brics.automaton.Transition;
+import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snt.autorex.autograph.Gnfa;
+import org.snt.autorex.autograph.IntGnfa;
+import org.snt.autorex.expr.ExprFactory;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class TestStateElimination {
@@ -108,6 +115,248 @@ public class TestStateElimination {
         Assert.assertTrue(compareRexp("[13d]d*") == true);
         Assert.assertTrue(compareRexp("[a-z]{1,3}test[0-9]+") == true);
         Assert.assertTrue(compareRexp("\\(test\\)") == true);
+        Assert.assertTrue(compareRexp("x(a|c)d") == true);
+    }
+
+    @Test
+    public void testEliminationStrategies() {
+        Automaton a = new RegExp("(abc)+[0-9]{1,3}[dg]*").toAutomaton();
+        Automaton b = new RegExp("(a|b)*a(a|b){2}").toAutomaton();
+        Automaton c = a.union(b);
+
+        for (EliminationStrategy s : EliminationStrategy.values()) {
+            String s0 = Autorex.getRegexFromAutomaton(c, new
+                    ConversionOptions().setOrder(s));
+            Assert.assertTrue(new RegExp(s0).toAutomaton().equals(c));
+        }
+    }
+
+    private boolean compareIntGnfa(Automaton a0) {
+        Gnfa g = Converter.INSTANCE.getGnfaFromAutomaton(a0);
+        StateEliminator.INSTANCE.handleTrivialCases(g);
+        IntGnfa ig = IntGnfa.fromGnfa(g);
+        String s0 = StateEliminator.INSTANCE.eliminate(ig,
+                EliminationStrategy.WEIGHT);
+        // built without the intermediate gnfa
+        String s1 = StateEliminator.INSTANCE.eliminate(Converter.INSTANCE
+                .getIntGnfaFromAutomaton(a0, Autorex.DEFAULT_TRANSLATOR),
+                EliminationStrategy.WEIGHT);
+        return new RegExp(s0).toAutomaton().equals(a0) && new RegExp(s1)
+                .toAutomaton().equals(a0);
+    }
+
+    @Test
+    public void testIntGnfa() {
+        Assert.assertTrue(compareIntGnfa(new RegExp("(ab*(bac)*)d+(ay)*")
+                .toAutomaton()));
+        Assert.assertTrue(compareIntGnfa(new RegExp("[a-z]{1,3}test[0-9]+")
+                .toAutomaton()));
+        Assert.assertTrue(compareIntGnfa(Automaton.makeString("abc")));
+
+        // large enough for the sparse representation
+        Random rnd = new Random(42L);
+        Automaton dict = Automaton.makeEmpty();
+        for (int i = 0; i < 200; i++) {
+            dict = dict.union(Automaton.makeString(RandomStringUtils.random
+                    (8, 0, 0, true, false, null, rnd)));
+        }
+        dict.minimize();
+        Assert.assertTrue(dict.getNumberOfStates() > IntGnfa.DENSE_LIMIT);
+        Assert.assertTrue(compareIntGnfa(dict));
+    }
+
+    @Test
+    public void testParallelElimination() {
+        String [] rexps = {"(ab*(bac)*)d+(ay)*", "((ab)c)+d*",
+                "([a-z0-9]+de)*", "(abc)+[0-9]{1,3}[dg]*",
+                "((abcd)*e(fgh)*)*x(ij(kl)*)+"};
+
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            String s0 = Autorex.getRegexFromAutomaton(a, new
+                    DefaultLabelTranslator(), EliminationStrategy.WEIGHT,
+                    ForkJoinPool.commonPool());
+            Assert.assertTrue(new RegExp(s0).toAutomaton().equals(a));
+        }
+    }
+
+    @Test
+    public void testKleeneEngine() {
+        String [] rexps = {"aa+", "(ab*(bac)*)d+(ay)*", "((ab)c)+d*",
+                "([a-z0-9]+de)*", "(a|b)*a(a|b){2}",
+                "((abcd)*e(fgh)*)*x(ij(kl)*)+"};
+
+        ConversionOptions opts = new ConversionOptions().setEngine
+                (ConversionEngine.KLEENE);
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            String s0 = Autorex.getRegexFromAutomaton(a, opts);
+            Assert.assertTrue(new RegExp(s0).toAutomaton().equals(a));
+        }
+
+        // enough predecessors per state for the rows to be updated in parallel
+        Random rnd = new Random(7L);
+        Automaton dict = Automaton.makeEmpty();
+        for (int i = 0; i < 200; i++) {
+            dict = dict.union(Automaton.makeString(RandomStringUtils.random
+                    (6, 0, 0, true, false, null, rnd) + "xyz"));
+        }
+        dict.minimize();
+        String s1 = Autorex.getRegexFromAutomaton(dict, new
+                ConversionOptions().setEngine(ConversionEngine.KLEENE)
+                .setPool(ForkJoinPool.commonPool()));
+        Assert.assertTrue(new RegExp(s1).toAutomaton().equals(dict));
+
+        try {
+            Autorex.getRegexFromAutomaton(Automaton.makeEmpty(), opts);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testArdenEngine() {
+        String [] rexps = {"aa+", "a*", "(ab)*", "(ab*(bac)*)d+(ay)*",
+                "((ab)c)+d*", "([a-z0-9]+de)*", "(a|b)*a(a|b){2}",
+                "((abcd)*e(fgh)*)*x(ij(kl)*)+"};
+
+        ConversionOptions opts = new ConversionOptions().setEngine
+                (ConversionEngine.ARDEN);
+        for (String r : rexps) {
+            Automaton a = new RegExp(r).toAutomaton();
+            String s0 = Autorex.getRegexFromAutomaton(a, opts);
+            Assert.assertTrue(new RegExp(s0).toAutomaton().equals(a));
+            String s1 = ArdenEliminator.INSTANCE.eliminate(Converter
+                    .INSTANCE.getGnfaFromAutomaton(a));
+            Assert.assertTrue(new RegExp(s1).toAutomaton().equals(a));
+        }
+
+        Random rnd = new Random(3L);
+        Automaton dict = Automaton.makeEmpty();
+        for (int i = 0; i < 200; i++) {
+            dict = dict.union(Automaton.makeString(RandomStringUtils.random
+                    (8, 0, 0, true, false, null, rnd)));
+        }
+        long [] terms = new long[2];
+        String s2 = Autorex.getRegexFromAutomaton(dict, new
+                ConversionOptions().setEngine(ConversionEngine.ARDEN)
+                .setListener(new EliminationListener() {
+                    @Override
+                    public void onStart(int states, int edges) {
+                        terms[0] = edges;
+                    }
+
+                    @Override
+                    public void onRip(int created, int states, int edges,
+                                      long maxLabelLength) {
+                        terms[1] = Math.max(terms[1], edges);
+                    }
+                }));
+        Assert.assertTrue(new RegExp(s2).toAutomaton().equals(dict));
+        // acyclic automata are solved without creating new terms
+        Assert.assertTrue(terms[1] < terms[0]);
+    }
+
+    private static void assertEmptyLanguage(Runnable r) {
+        try {
+            r.run();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug(e.getMessage());
+        }
+    }
+
+    private static Gnfa emptyGnfa() {
+        return Converter.INSTANCE.getGnfaFromAutomaton(Automaton.makeEmpty());
+    }
+
+    @Test
+    public void testEmptyLanguageStateElimination() {
+        assertEmptyLanguage(() -> StateEliminator.INSTANCE.eliminate
+                (emptyGnfa()));
+        assertEmptyLanguage(() -> StateEliminator.INSTANCE.eliminate
+                (emptyGnfa(), EliminationStrategy.WEIGHT, ForkJoinPool
+                        .commonPool()));
+        assertEmptyLanguage(() -> Autorex.getRegexFromAutomaton(Automaton
+                .makeEmpty(), new ConversionOptions().setEngine
+                (ConversionEngine.STATE_ELIMINATION)));
+    }
+
+    @Test
+    public void testEmptyLanguageIntGnfa() {
+        assertEmptyLanguage(() -> StateEliminator.INSTANCE.eliminate
+                (Converter.INSTANCE.getIntGnfaFromAutomaton(Automaton
+                        .makeEmpty(), new DefaultLabelTranslator()),
+                        EliminationStrategy.WEIGHT));
+    }
+
+    @Test
+    public void testEmptyLanguageKleene() {
+        assertEmptyLanguage(() -> KleeneEliminator.INSTANCE.eliminate
+                (emptyGnfa()));
+        assertEmptyLanguage(() -> Autorex.getRegexFromAutomaton(Automaton
+                .makeEmpty(), new ConversionOptions().setEngine
+                (ConversionEngine.KLEENE)));
+    }
+
+    @Test
+    public void testEmptyLanguageArden() {
+        assertEmptyLanguage(() -> ArdenEliminator.INSTANCE.eliminate
+                (emptyGnfa()));
+        assertEmptyLanguage(() -> Autorex.getRegexFromAutomaton(Automaton
+                .makeEmpty(), new ConversionOptions().setEngine
+                (ConversionEngine.ARDEN)));
+    }
+
+    @Test
+    public void testSimplification() {
+        Assert.assertEquals("a*", Autorex.getRegexFromAutomaton(new RegExp
+                ("a*").toAutomaton()));
+        Assert.assertEquals("d?", Autorex.getRegexFromAutomaton(new RegExp
+                ("d{0,1}").toAutomaton()));
+        Assert.assertEquals("(ab)*", Autorex.getRegexFromAutomaton(new RegExp
+                ("(ab)*").toAutomaton()));
+        Assert.assertEquals("(ta)*d", Autorex.getRegexFromAutomaton(new RegExp
+                ("((ta)+)*d").toAutomaton()));
+        String s0 = Autorex.getRegexFromAutomaton(new RegExp
+                ("(ab){0,10}c*d").toAutomaton());
+        Assert.assertFalse(s0.contains(".{0}"));
+        Assert.assertFalse(s0.contains("()"));
+
+        // literal strings are only parenthesized below postfix operators
+        ExprFactory f = new ExprFactory();
+        Assert.assertEquals("abcx", f.concat(f.atom("abc"), f.atom("x"))
+                .toString());
+        Assert.assertEquals("(abc)*x", f.concat(f.star(f.atom("abc")), f
+                .atom("x")).toString());
+        Assert.assertEquals("(a|b)c", f.concat(f.atom("a|b"), f.atom("c"))
+                .toString());
+        Assert.assertEquals("\\(a[|]x", f.concat(f.atom("\\(a[|]"), f.atom
+                ("x")).toString());
+    }
+
+    @Test
+    public void testCharClasses() {
+        Assert.assertEquals("[acx-z]", Autorex.getRegexFromAutomaton(new
+                RegExp("[acx-z]").toAutomaton()));
+        Assert.assertEquals("[a-df-h]x", Autorex.getRegexFromAutomaton(new
+                RegExp("[a-c]x|dx|[f-h]x").toAutomaton()));
+        Assert.assertTrue(compareRexp("[\\-\\]a\\^\\\\]b"));
+        Assert.assertTrue(compareRexp("[^a]|[b-d]"));
+    }
+
+    @Test
+    public void testStateIds() {
+        Automaton a = new RegExp("(ab*(bac)*)d+(ay)*").toAutomaton();
+        Gnfa g1 = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        Gnfa g2 = Converter.INSTANCE.getGnfaFromAutomaton(a);
+        // ids are dense and allocated per graph
+        for (Gnfa g : new Gnfa[]{g1, g2}) {
+            Assert.assertTrue(g.vertexSet().stream().allMatch(s -> s.getId()
+                    >= 0 && s.getId() < g.vertexSet().size()));
+        }
+        Assert.assertEquals(g1.vertexSet(), g2.vertexSet());
     }
 
     @Test